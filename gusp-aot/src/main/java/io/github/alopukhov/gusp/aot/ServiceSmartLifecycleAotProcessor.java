@@ -0,0 +1,199 @@
+package io.github.alopukhov.gusp.aot;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ServiceManager;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor;
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.generate.ValueCodeGenerator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.aot.BeanRegistrationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationCode;
+import org.springframework.beans.factory.aot.BeanRegistrationCodeFragments;
+import org.springframework.beans.factory.aot.BeanRegistrationCodeFragmentsDecorator;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.InstanceSupplier;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.javapoet.ClassName;
+import org.springframework.javapoet.CodeBlock;
+import org.springframework.javapoet.MethodSpec;
+
+import javax.lang.model.element.Modifier;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Generates registration code of {@link ServiceSmartLifecycle} adapters created by {@link WithSmartLifecyclePostprocessor}.
+ * Generated code creates adapter and calls its setters directly instead of resolving constructor arguments
+ * and property values reflectively.
+ * <p>
+ * Adapters with property values that can not be generated as code are left to default processing.
+ */
+public class ServiceSmartLifecycleAotProcessor implements BeanRegistrationAotProcessor {
+    private static final String ADAPTER_FACTORY_METHOD = "forBean";
+    private static final Class<?>[] ADAPTED_TYPES = {Service.class, ServiceManager.class, Service[].class, Iterable.class};
+
+    @Override
+    public BeanRegistrationAotContribution processAheadOfTime(RegisteredBean registeredBean) {
+        RootBeanDefinition definition = registeredBean.getMergedBeanDefinition();
+        if (registeredBean.getBeanClass() != ServiceSmartLifecycle.class
+                || !ADAPTER_FACTORY_METHOD.equals(definition.getFactoryMethodName())
+                || definition.getConstructorArgumentValues().getArgumentCount() != 1) {
+            return null;
+        }
+        ValueHolder serviceArgument = definition.getConstructorArgumentValues().getIndexedArgumentValue(0, null);
+        if (serviceArgument == null || !(serviceArgument.getValue() instanceof RuntimeBeanReference)) {
+            return null;
+        }
+        String serviceBeanName = ((RuntimeBeanReference) serviceArgument.getValue()).getBeanName();
+        Class<?> serviceType = adaptedType(registeredBean.getBeanFactory().getType(serviceBeanName, false));
+        List<Setter> setters = new ArrayList<>();
+        for (PropertyValue propertyValue : definition.getPropertyValues().getPropertyValueList()) {
+            Setter setter = Setter.of(propertyValue);
+            if (setter == null) {
+                return null;
+            }
+            setters.add(setter);
+        }
+        return BeanRegistrationAotContribution.withCustomCodeFragments(
+                codeFragments -> new AdapterCodeFragments(codeFragments, registeredBean, serviceBeanName, serviceType, setters));
+    }
+
+    /**
+     * @return type of adapter factory argument matching adapted bean type
+     */
+    private static Class<?> adaptedType(Class<?> beanType) {
+        if (beanType != null) {
+            for (Class<?> type : ADAPTED_TYPES) {
+                if (type.isAssignableFrom(beanType)) {
+                    return type;
+                }
+            }
+        }
+        return Service.class;
+    }
+
+    private static class AdapterCodeFragments extends BeanRegistrationCodeFragmentsDecorator {
+        private final RegisteredBean registeredBean;
+        private final String serviceBeanName;
+        private final Class<?> serviceType;
+        private final List<Setter> setters;
+
+        private AdapterCodeFragments(BeanRegistrationCodeFragments delegate, RegisteredBean registeredBean,
+                                     String serviceBeanName, Class<?> serviceType, List<Setter> setters) {
+            super(delegate);
+            this.registeredBean = registeredBean;
+            this.serviceBeanName = serviceBeanName;
+            this.serviceType = serviceType;
+            this.setters = setters;
+        }
+
+        @Override
+        public ClassName getTarget(RegisteredBean registeredBean) {
+            //Default implementation resolves factory method by argument type which fails for generic service groups
+            return ClassName.get(ServiceSmartLifecycle.class);
+        }
+
+        @Override
+        public CodeBlock generateSetBeanDefinitionPropertiesCode(GenerationContext generationContext,
+                                                                 BeanRegistrationCode beanRegistrationCode,
+                                                                 RootBeanDefinition beanDefinition,
+                                                                 Predicate<String> attributeFilter) {
+            RootBeanDefinition withoutArguments = new RootBeanDefinition(beanDefinition);
+            withoutArguments.setPropertyValues(new MutablePropertyValues());
+            withoutArguments.getConstructorArgumentValues().clear();
+            return super.generateSetBeanDefinitionPropertiesCode(generationContext, beanRegistrationCode,
+                    withoutArguments, attributeFilter);
+        }
+
+        @Override
+        public CodeBlock generateInstanceSupplierCode(GenerationContext generationContext,
+                                                      BeanRegistrationCode beanRegistrationCode,
+                                                      boolean allowDirectSupplierShortcut) {
+            GeneratedMethod method = beanRegistrationCode.getMethods().add("getInstance", this::generateGetInstance);
+            return CodeBlock.of("$T.of($T::$L)", InstanceSupplier.class, beanRegistrationCode.getClassName(), method.getName());
+        }
+
+        private void generateGetInstance(MethodSpec.Builder method) {
+            ValueCodeGenerator values = ValueCodeGenerator.withDefaults();
+            method.addJavadoc("Create adapter for bean '$L'.", registeredBean.getBeanName());
+            method.addModifiers(Modifier.PRIVATE, Modifier.STATIC);
+            method.addParameter(RegisteredBean.class, "registeredBean");
+            method.returns(ServiceSmartLifecycle.class);
+            method.addStatement("$T beanFactory = registeredBean.getBeanFactory()", ConfigurableListableBeanFactory.class);
+            if (serviceType == Service.class) {
+                method.addStatement("$T lifecycle = new $T(beanFactory.getBean($S, $T.class))", ServiceSmartLifecycle.class,
+                        ServiceSmartLifecycle.class, serviceBeanName, serviceType);
+            } else {
+                String factory = serviceType == ServiceManager.class ? "forManager" : "forGroup";
+                method.addStatement("$T lifecycle = $T.$L(beanFactory.getBean($S, $T.class))", ServiceSmartLifecycle.class,
+                        ServiceSmartLifecycle.class, factory, serviceBeanName, serviceType);
+            }
+            method.addStatement("beanFactory.registerDependentBean($S, registeredBean.getBeanName())", serviceBeanName);
+            for (Setter setter : setters) {
+                if (setter.reference != null) {
+                    method.addStatement("lifecycle.$L(beanFactory.getBean($S, $T.class))", setter.method.getName(),
+                            setter.reference, setter.method.getParameterTypes()[0]);
+                    method.addStatement("beanFactory.registerDependentBean($S, registeredBean.getBeanName())", setter.reference);
+                } else {
+                    method.addStatement("lifecycle.$L($L)", setter.method.getName(), values.generateCode(setter.value));
+                }
+            }
+            method.addStatement("return lifecycle");
+        }
+    }
+
+    private static class Setter {
+        private final Method method;
+        private final Object value;
+        private final String reference;
+
+        private Setter(Method method, Object value, String reference) {
+            this.method = method;
+            this.value = value;
+            this.reference = reference;
+        }
+
+        /**
+         * @return setter of property or null if property value is not supported
+         */
+        private static Setter of(PropertyValue propertyValue) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(ServiceSmartLifecycle.class, propertyValue.getName());
+            if (descriptor == null || descriptor.getWriteMethod() == null) {
+                return null;
+            }
+            Method method = descriptor.getWriteMethod();
+            Object value = propertyValue.getValue();
+            if (value instanceof RuntimeBeanReference) {
+                return new Setter(method, null, ((RuntimeBeanReference) value).getBeanName());
+            }
+            Class<?> type = method.getParameterTypes()[0];
+            try {
+                value = new SimpleTypeConverter().convertIfNecessary(value, type);
+            } catch (TypeMismatchException e) {
+                return null;
+            }
+            if (value == null || !isLiteral(value)) {
+                return null;
+            }
+            return new Setter(method, value, null);
+        }
+
+        private static boolean isLiteral(Object value) {
+            return value instanceof String || value instanceof Boolean || value instanceof Number
+                    || value instanceof Enum || value instanceof String[];
+        }
+    }
+}
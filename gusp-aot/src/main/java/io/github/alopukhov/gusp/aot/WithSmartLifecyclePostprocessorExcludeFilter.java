@@ -0,0 +1,16 @@
+package io.github.alopukhov.gusp.aot;
+
+import io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.support.RegisteredBean;
+
+/**
+ * Excludes {@link WithSmartLifecyclePostprocessor} from AOT processing.
+ * Its bean definitions are already processed at build time, so it must not run again in AOT optimized context.
+ */
+public class WithSmartLifecyclePostprocessorExcludeFilter implements BeanRegistrationExcludeFilter {
+    @Override
+    public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+        return WithSmartLifecyclePostprocessor.class.isAssignableFrom(registeredBean.getBeanClass());
+    }
+}
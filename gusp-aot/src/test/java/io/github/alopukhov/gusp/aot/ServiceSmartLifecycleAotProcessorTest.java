@@ -0,0 +1,156 @@
+package io.github.alopukhov.gusp.aot;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.Service.State;
+import com.google.common.util.concurrent.ServiceManager;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.PhaseStartCoordinator;
+import io.github.alopukhov.gusp.lifecycle.ServiceManagerService;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.test.generate.TestGenerationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.test.tools.Compiled;
+import org.springframework.core.test.tools.TestCompiler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServiceSmartLifecycleAotProcessorTest {
+    @Test
+    void testAdapterIsCreatedByGeneratedCode() {
+        compile(Conf.class, compiled -> {
+            // when
+            GenericApplicationContext context = createContext(compiled);
+            // then
+            ServiceSmartLifecycle lifecycle = context.getBean("service" + WithSmartLifecyclePostprocessor.DEFAULT_BEAN_NAME_SUFFIX,
+                    ServiceSmartLifecycle.class);
+            assertThat(lifecycle.getService()).isSameAs(context.getBean("service"));
+            assertThat(lifecycle.getPhase()).isEqualTo(42);
+            assertThat(lifecycle.isStopOnDestroy()).isTrue();
+            assertThat(lifecycle.getStopTimeout()).isEqualTo(1000);
+            assertThat(lifecycle.getAfter()).containsExactly("other");
+            assertThat(lifecycle.getServiceBeanName()).isEqualTo("service");
+            assertThat(lifecycle.getCoordinator()).isSameAs(context.getBean(PhaseStartCoordinator.class));
+            assertThat(lifecycle.getService().state()).isEqualTo(State.RUNNING);
+            assertThat(context.getBeanNamesForType(WithSmartLifecyclePostprocessor.class)).isEmpty();
+            assertThat(compiled.getSourceFiles().stream().anyMatch(source -> source.getContent().contains("lifecycle.setPhase(42)")))
+                    .isTrue();
+            // when
+            context.close();
+            // then
+            assertThat(lifecycle.getService().state()).isEqualTo(State.TERMINATED);
+        });
+    }
+
+    @Test
+    void testServiceManagerAdapterIsCreatedByGeneratedCode() {
+        compile(ManagerConf.class, compiled -> {
+            // when
+            GenericApplicationContext context = createContext(compiled);
+            // then
+            ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+            assertThat(lifecycle.getService()).isInstanceOf(ServiceManagerService.class);
+            assertThat(((ServiceManagerService) lifecycle.getService()).getManager()).isSameAs(context.getBean(ServiceManager.class));
+            assertThat(lifecycle.getStartupTimes()).hasSize(2);
+            context.close();
+        });
+    }
+
+    @Test
+    void testServiceGroupAdapterIsCreatedByGeneratedCode() {
+        compile(GroupConf.class, compiled -> {
+            // when
+            GenericApplicationContext context = createContext(compiled);
+            // then
+            ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+            assertThat(lifecycle.getMemberStates()).hasSize(2).containsValues(State.RUNNING);
+            context.close();
+        });
+    }
+
+    private static void compile(Class<?> configuration, Consumer<Compiled> result) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(configuration);
+        TestGenerationContext generationContext = new TestGenerationContext();
+        new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext);
+        generationContext.writeGeneratedContent();
+        TestCompiler.forSystem().with(generationContext).compile(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GenericApplicationContext createContext(Compiled compiled) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        compiled.getInstance(ApplicationContextInitializer.class).initialize(context);
+        context.refresh();
+        return context;
+    }
+
+    public static class TestService extends AbstractIdleService {
+        @Override
+        protected void startUp() {
+        }
+
+        @Override
+        protected void shutDown() {
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    public static class ManagerConf {
+        @Bean
+        public static WithSmartLifecyclePostprocessor withSmartLifecyclePostprocessor() {
+            return new WithSmartLifecyclePostprocessor();
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public ServiceManager manager() {
+            return new ServiceManager(Arrays.asList(new TestService(), new TestService()));
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    public static class GroupConf {
+        @Bean
+        public static WithSmartLifecyclePostprocessor withSmartLifecyclePostprocessor() {
+            return new WithSmartLifecyclePostprocessor();
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public List<TestService> group() {
+            return Arrays.asList(new TestService(), new TestService());
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    public static class Conf {
+        @Bean
+        public static WithSmartLifecyclePostprocessor withSmartLifecyclePostprocessor() {
+            WithSmartLifecyclePostprocessor postprocessor = new WithSmartLifecyclePostprocessor();
+            postprocessor.setParallelStart(true);
+            return postprocessor;
+        }
+
+        @Bean
+        @WithSmartLifecycle(phase = 42, stopOnDestroy = true, stopTimeout = 1000, after = "other")
+        public TestService service() {
+            return new TestService();
+        }
+
+        @Bean
+        public TestService other() {
+            return new TestService();
+        }
+    }
+}
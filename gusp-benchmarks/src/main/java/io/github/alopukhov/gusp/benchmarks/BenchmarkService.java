@@ -0,0 +1,31 @@
+package io.github.alopukhov.gusp.benchmarks;
+
+import com.google.common.util.concurrent.AbstractService;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Service doing nothing but state transitions. Transitions are made in provided executor.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class BenchmarkService extends AbstractService {
+    private final Executor executor;
+
+    public BenchmarkService() {
+        this(Runnable::run);
+    }
+
+    public BenchmarkService(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    protected void doStart() {
+        executor.execute(this::notifyStarted);
+    }
+
+    @Override
+    protected void doStop() {
+        executor.execute(this::notifyStopped);
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.alopukhov.gusp.benchmarks;
+
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ServiceSmartLifecycle#isRunning()} called concurrently for single running service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class IsRunningBenchmark {
+    private ServiceSmartLifecycle lifecycle;
+
+    @Setup
+    public void startLifecycle() {
+        lifecycle = new ServiceSmartLifecycle(new BenchmarkService());
+        lifecycle.start();
+    }
+
+    @TearDown
+    public void stopLifecycle() {
+        lifecycle.stop();
+    }
+
+    @Benchmark
+    public boolean isRunning() {
+        return lifecycle.isRunning();
+    }
+}
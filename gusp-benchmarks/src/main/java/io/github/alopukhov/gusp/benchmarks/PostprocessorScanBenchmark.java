@@ -0,0 +1,51 @@
+package io.github.alopukhov.gusp.benchmarks;
+
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time {@link WithSmartLifecyclePostprocessor} spends looking for annotated services among bean definitions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PostprocessorScanBenchmark {
+    @Param({"1000", "10000", "50000"})
+    private int definitions;
+
+    @Param("100")
+    private int services;
+
+    private DefaultListableBeanFactory registry;
+
+    @Setup(Level.Invocation)
+    public void createRegistry() {
+        registry = new DefaultListableBeanFactory();
+        int step = Math.max(definitions / services, 1);
+        for (int i = 0; i < definitions; i++) {
+            Class<?> beanClass = i % step == 0 ? AnnotatedService.class : PlainBean.class;
+            registry.registerBeanDefinition("bean" + i, new AnnotatedGenericBeanDefinition(beanClass));
+        }
+    }
+
+    @Benchmark
+    public DefaultListableBeanFactory scan() {
+        new WithSmartLifecyclePostprocessor().postProcessBeanDefinitionRegistry(registry);
+        return registry;
+    }
+
+    @WithSmartLifecycle
+    public static class AnnotatedService extends BenchmarkService {
+    }
+
+    public static class PlainBean {
+    }
+}
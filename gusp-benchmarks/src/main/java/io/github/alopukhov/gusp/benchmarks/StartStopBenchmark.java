@@ -0,0 +1,61 @@
+package io.github.alopukhov.gusp.benchmarks;
+
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start and stop of many adapters one after another, as spring does within a phase.
+ * Services make state transitions in background threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartStopBenchmark {
+    @Param({"10", "100"})
+    private int adapters;
+
+    @Param({"false", "true"})
+    private boolean asyncStart;
+
+    private ExecutorService executor;
+    private List<ServiceSmartLifecycle> lifecycles;
+
+    @Setup(Level.Trial)
+    public void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void createLifecycles() {
+        lifecycles = new ArrayList<>(adapters);
+        for (int i = 0; i < adapters; i++) {
+            ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new BenchmarkService(executor));
+            lifecycle.setAsyncStart(asyncStart);
+            lifecycles.add(lifecycle);
+        }
+    }
+
+    @Benchmark
+    public void startAndStop() {
+        for (ServiceSmartLifecycle lifecycle : lifecycles) {
+            lifecycle.start();
+        }
+        for (ServiceSmartLifecycle lifecycle : lifecycles) {
+            lifecycle.stop();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.alopukhov.gusp.benchmarks;
+
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency from {@link ServiceSmartLifecycle#stop(Runnable)} call to callback execution
+ * for service stopped in background thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StopCallbackBenchmark {
+    private ExecutorService executor;
+    private ServiceSmartLifecycle lifecycle;
+
+    @Setup(Level.Trial)
+    public void createExecutor() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void startLifecycle() {
+        lifecycle = new ServiceSmartLifecycle(new BenchmarkService(executor));
+        lifecycle.start();
+    }
+
+    @Benchmark
+    public void stopCallback() throws InterruptedException {
+        CountDownLatch callback = new CountDownLatch(1);
+        lifecycle.stop(callback::countDown);
+        callback.await();
+    }
+}
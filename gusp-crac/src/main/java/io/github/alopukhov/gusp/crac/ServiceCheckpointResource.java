@@ -0,0 +1,137 @@
+package io.github.alopukhov.gusp.crac;
+
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.SupervisedService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Stops services managed by {@link ServiceSmartLifecycle ServiceSmartLifecycle} adapters before CRaC checkpoint
+ * and starts them again after restore.
+ * <p>
+ * Guava service can not be restarted, so only {@link SupervisedService supervised} services
+ * (e.g. annotated with {@code @WithSmartLifecycle(supervised = true)}) are supported:
+ * before checkpoint running supervisors are {@link SupervisedService#suspend(long, TimeUnit) suspended}
+ * in reverse phase order, after restore they are {@link SupervisedService#resume(long, TimeUnit) resumed}
+ * with fresh instances in phase order. Stop and start are bounded by stop and start timeouts of adapters.
+ * Checkpoint is rejected if any other service is running.
+ * <p>
+ * Resource registers itself in global CRaC context which keeps weak references only, so it must be kept
+ * reachable, e.g. registered as a bean:
+ * <pre>
+ *     &#064;Bean
+ *     public ServiceCheckpointResource serviceCheckpointResource(List&lt;ServiceSmartLifecycle&gt; lifecycles) {
+ *         return new ServiceCheckpointResource(lifecycles);
+ *     }
+ * </pre>
+ * On JDK without CRaC support {@code org.crac} falls back to no-op implementation and resource is never notified.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ServiceCheckpointResource implements Resource {
+    private static final Log LOG = LogFactory.getLog(ServiceCheckpointResource.class);
+
+    private final List<ServiceSmartLifecycle> lifecycles;
+    private final List<ServiceSmartLifecycle> suspended = new ArrayList<>();
+
+    public ServiceCheckpointResource(Collection<? extends ServiceSmartLifecycle> lifecycles) {
+        this.lifecycles = new ArrayList<>(requireNonNull(lifecycles, "lifecycles"));
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public synchronized void beforeCheckpoint(Context<? extends Resource> context) throws Exception {
+        List<ServiceSmartLifecycle> running = new ArrayList<>();
+        List<String> unsupervised = new ArrayList<>();
+        for (ServiceSmartLifecycle lifecycle : lifecycles) {
+            if (!lifecycle.isRunning()) {
+                continue;
+            }
+            if (lifecycle.getService() instanceof SupervisedService) {
+                running.add(lifecycle);
+            } else {
+                unsupervised.add(describe(lifecycle));
+            }
+        }
+        if (!unsupervised.isEmpty()) {
+            throw new IllegalStateException("Services " + unsupervised + " can not be restored after checkpoint."
+                    + " Declare them supervised");
+        }
+        running.sort(Comparator.comparingInt(ServiceSmartLifecycle::getPhase).reversed());
+        try {
+            for (ServiceSmartLifecycle lifecycle : running) {
+                ((SupervisedService) lifecycle.getService()).suspend(timeout(lifecycle.getStopTimeout()), TimeUnit.MILLISECONDS);
+                suspended.add(lifecycle);
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to suspend services before checkpoint. Resuming suspended ones", e);
+            try {
+                resume();
+            } catch (Exception resumeFailure) {
+                e.addSuppressed(resumeFailure);
+            }
+            throw e;
+        }
+        LOG.info("Suspended " + suspended.size() + " services before checkpoint");
+    }
+
+    @Override
+    public synchronized void afterRestore(Context<? extends Resource> context) throws Exception {
+        resume();
+    }
+
+    /**
+     * Tries to resume every suspended service. Services which failed to resume stay suspended, so next attempt
+     * retries them. First failure is rethrown with later ones suppressed.
+     */
+    private void resume() throws Exception {
+        List<ServiceSmartLifecycle> failed = new ArrayList<>();
+        Exception failure = null;
+        int resumed = 0;
+        for (int i = suspended.size() - 1; i >= 0; i--) {
+            ServiceSmartLifecycle lifecycle = suspended.get(i);
+            try {
+                ((SupervisedService) lifecycle.getService()).resume(timeout(lifecycle.getStartTimeout()), TimeUnit.MILLISECONDS);
+                resumed++;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                LOG.warn("Failed to resume service " + describe(lifecycle), e);
+                failed.add(0, lifecycle);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        suspended.clear();
+        suspended.addAll(failed);
+        if (resumed > 0) {
+            LOG.info("Resumed " + resumed + " services");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static long timeout(long timeout) {
+        return timeout > 0 ? timeout : Long.MAX_VALUE;
+    }
+
+    private static String describe(ServiceSmartLifecycle lifecycle) {
+        String beanName = lifecycle.getServiceBeanName();
+        return beanName != null ? beanName : String.valueOf(lifecycle.getService());
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.alopukhov.gusp.crac;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.SupervisedService;
+import org.crac.Core;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SuppressWarnings("UnstableApiUsage")
+class ServiceCheckpointResourceTest {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testSupervisedServicesAreRecreatedAfterRestore() throws Exception {
+        // given
+        ServiceSmartLifecycle early = createLifecycle("early", 0);
+        ServiceSmartLifecycle late = createLifecycle("late", 1);
+        ServiceCheckpointResource resource = new ServiceCheckpointResource(Arrays.asList(early, late));
+        early.start();
+        late.start();
+        Service earlyInstance = ((SupervisedService) early.getService()).getCurrent();
+        events.clear();
+        // when
+        resource.beforeCheckpoint(Core.getGlobalContext());
+        // then
+        assertThat(events).containsExactly("late stopped", "early stopped");
+        assertThat(earlyInstance.state()).isEqualTo(State.TERMINATED);
+        assertThat(early.isRunning()).isTrue();
+        // when
+        resource.afterRestore(Core.getGlobalContext());
+        // then
+        assertThat(events).containsExactly("late stopped", "early stopped", "early started", "late started");
+        assertThat(((SupervisedService) early.getService()).getCurrent()).isNotSameAs(earlyInstance);
+        assertThat(((SupervisedService) early.getService()).getCurrent().state()).isEqualTo(State.RUNNING);
+        early.stop();
+        late.stop();
+    }
+
+    @Test
+    void testServicesFailedToResumeAreRetried() throws Exception {
+        // given
+        CountDownLatch gate = new CountDownLatch(1);
+        ServiceSmartLifecycle early = createGatedLifecycle("early", 0, gate);
+        ServiceSmartLifecycle late = createGatedLifecycle("late", 1, gate);
+        ServiceCheckpointResource resource = new ServiceCheckpointResource(Arrays.asList(early, late));
+        early.start();
+        late.start();
+        resource.beforeCheckpoint(Core.getGlobalContext());
+        events.clear();
+        // when
+        Throwable thrown = catchThrowable(() -> resource.afterRestore(Core.getGlobalContext()));
+        // then
+        assertThat(thrown).isInstanceOf(TimeoutException.class);
+        assertThat(thrown.getSuppressed()).hasSize(1).allMatch(suppressed -> suppressed instanceof TimeoutException);
+        // when
+        gate.countDown();
+        resource.afterRestore(Core.getGlobalContext());
+        // then
+        assertThat(events).containsExactlyInAnyOrder("early started", "late started");
+        assertThat(((SupervisedService) early.getService()).getCurrent().state()).isEqualTo(State.RUNNING);
+        assertThat(((SupervisedService) late.getService()).getCurrent().state()).isEqualTo(State.RUNNING);
+        early.stop();
+        late.stop();
+    }
+
+    @Test
+    void testCheckpointIsRejectedIfUnsupervisedServiceIsRunning() {
+        // given
+        ServiceSmartLifecycle supervised = createLifecycle("supervised", 0);
+        ServiceSmartLifecycle unsupervised = new ServiceSmartLifecycle(new RecordingService("unsupervised"));
+        unsupervised.setServiceBeanName("unsupervised");
+        ServiceCheckpointResource resource = new ServiceCheckpointResource(Arrays.asList(supervised, unsupervised));
+        supervised.start();
+        unsupervised.start();
+        events.clear();
+        // expect
+        assertThatThrownBy(() -> resource.beforeCheckpoint(Core.getGlobalContext()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[unsupervised]");
+        assertThat(events).isEmpty();
+        supervised.stop();
+        unsupervised.stop();
+    }
+
+    @Test
+    void testServicesNotRunningAreIgnored() throws Exception {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle("idle", 0);
+        ServiceCheckpointResource resource = new ServiceCheckpointResource(Collections.singletonList(lifecycle));
+        // when
+        resource.beforeCheckpoint(Core.getGlobalContext());
+        resource.afterRestore(Core.getGlobalContext());
+        // then
+        assertThat(events).isEmpty();
+        assertThat(lifecycle.getService().state()).isEqualTo(State.NEW);
+    }
+
+    private ServiceSmartLifecycle createLifecycle(String name, int phase) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new SupervisedService(() -> new RecordingService(name)));
+        lifecycle.setServiceBeanName(name);
+        lifecycle.setPhase(phase);
+        return lifecycle;
+    }
+
+    /**
+     * @return lifecycle which instances created after the first one start only once gate is open
+     */
+    private ServiceSmartLifecycle createGatedLifecycle(String name, int phase, CountDownLatch gate) {
+        AtomicInteger created = new AtomicInteger();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new SupervisedService(() ->
+                created.getAndIncrement() == 0 ? new RecordingService(name) : new GatedService(name, gate)));
+        lifecycle.setServiceBeanName(name);
+        lifecycle.setPhase(phase);
+        lifecycle.setStartTimeout(50);
+        return lifecycle;
+    }
+
+    private class GatedService extends RecordingService {
+        private final CountDownLatch gate;
+
+        private GatedService(String name, CountDownLatch gate) {
+            super(name);
+            this.gate = gate;
+        }
+
+        @Override
+        protected void doStart() {
+            new Thread(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.doStart();
+            }).start();
+        }
+    }
+
+    private class RecordingService extends AbstractService {
+        private final String name;
+
+        private RecordingService(String name) {
+            this.name = name;
+        }
+
+        @Override
+        protected void doStart() {
+            events.add(name + " started");
+            notifyStarted();
+        }
+
+        @Override
+        protected void doStop() {
+            events.add(name + " stopped");
+            notifyStopped();
+        }
+    }
+}
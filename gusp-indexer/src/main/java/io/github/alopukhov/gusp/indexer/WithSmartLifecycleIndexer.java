@@ -0,0 +1,170 @@
+package io.github.alopukhov.gusp.indexer;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor writing index of classes and factory methods annotated with
+ * {@code @WithSmartLifecycle} to {@value #INDEX_LOCATION}. Elements annotated with annotation types
+ * meta-annotated with {@code @WithSmartLifecycle} are indexed too, so all annotation types are inspected.
+ * <p>
+ * Class is written as its binary name, factory method as binary name of declaring class and method name
+ * separated by {@code #}. {@code WithSmartLifecyclePostprocessor} reads annotation metadata only of indexed
+ * bean definitions among those declared by classes of the same classpath root as index.
+ * <p>
+ * Index is merged with the one left in class output by previous compilation, so incremental compilation of part of
+ * sources keeps entries of other classes. Entries of types compiled again or no longer existing are replaced.
+ * Processor is declared as aggregating incremental processor for Gradle.
+ */
+@SupportedAnnotationTypes("*")
+public class WithSmartLifecycleIndexer extends AbstractProcessor {
+    public static final String ANNOTATION_NAME = "io.github.alopukhov.gusp.annotations.WithSmartLifecycle";
+    public static final String INDEX_LOCATION = "META-INF/gusp.index";
+
+    private final Set<String> entries = new TreeSet<>();
+    private final Set<String> processedTypes = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            collectTypes(element);
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void collectTypes(Element element) {
+        if (element instanceof TypeElement) {
+            processedTypes.add(binaryName(element));
+            collectEntry(element);
+            for (Element enclosed : element.getEnclosedElements()) {
+                if (enclosed.getKind() == ElementKind.METHOD) {
+                    collectEntry(enclosed);
+                } else {
+                    collectTypes(enclosed);
+                }
+            }
+        }
+    }
+
+    private void collectEntry(Element element) {
+        String entry = entry(element);
+        if (entry != null && isAnnotated(element, new HashSet<>())) {
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * @return true if element is annotated with {@code @WithSmartLifecycle} directly or via meta-annotations
+     */
+    private static boolean isAnnotated(Element element, Set<String> visited) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            String name = annotationType.getQualifiedName().toString();
+            if (name.equals(ANNOTATION_NAME)) {
+                return true;
+            }
+            if (!name.startsWith("java.lang.annotation.") && visited.add(name) && isAnnotated(annotationType, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String entry(Element element) {
+        if (element.getKind() == ElementKind.CLASS) {
+            return binaryName(element);
+        }
+        if (element.getKind() == ElementKind.METHOD) {
+            return binaryName(element.getEnclosingElement()) + "#" + element.getSimpleName();
+        }
+        return null;
+    }
+
+    private String binaryName(Element type) {
+        return processingEnv.getElementUtils().getBinaryName((TypeElement) type).toString();
+    }
+
+    private void writeIndex() {
+        Set<String> previous = readPreviousIndex();
+        if (previous == null && entries.isEmpty()) {
+            return;
+        }
+        if (previous != null) {
+            for (String entry : previous) {
+                if (shouldBeMerged(entry)) {
+                    entries.add(entry);
+                }
+            }
+        }
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + INDEX_LOCATION + ": " + e);
+        }
+    }
+
+    /**
+     * @return entries of index written by previous compilation or null if there is none
+     */
+    private Set<String> readPreviousIndex() {
+        Set<String> previous = new HashSet<>();
+        try {
+            FileObject index = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Reader reader = new InputStreamReader(index.openInputStream(), StandardCharsets.UTF_8);
+                 BufferedReader lines = new BufferedReader(reader)) {
+                for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                    line = line.trim();
+                    if (!line.isEmpty()) {
+                        previous.add(line);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        return previous;
+    }
+
+    /**
+     * @return true if type of entry was not compiled again and still exists
+     */
+    private boolean shouldBeMerged(String entry) {
+        int methodSeparator = entry.indexOf('#');
+        String type = methodSeparator < 0 ? entry : entry.substring(0, methodSeparator);
+        return !processedTypes.contains(type)
+                && processingEnv.getElementUtils().getTypeElement(type.replace('$', '.')) != null;
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.alopukhov.gusp.indexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WithSmartLifecycleIndexerTest {
+    private static final String ANNOTATION_SOURCE = "package io.github.alopukhov.gusp.annotations;\n"
+            + "public @interface WithSmartLifecycle {}";
+
+    @TempDir
+    Path output;
+
+    @Test
+    void testAnnotatedClassesAndMethodsAreIndexed() throws IOException {
+        // given
+        String services = "package acme;\n"
+                + "import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;\n"
+                + "@WithSmartLifecycle public class Services {\n"
+                + "  @WithSmartLifecycle public static class Nested {}\n"
+                + "  @WithSmartLifecycle public Object service() { return null; }\n"
+                + "  public Object notService() { return null; }\n"
+                + "}";
+        // when
+        boolean compiled = compile(source("io.github.alopukhov.gusp.annotations.WithSmartLifecycle", ANNOTATION_SOURCE),
+                source("acme.Services", services));
+        // then
+        assertThat(compiled).isTrue();
+        assertThat(Files.readAllLines(output.resolve(WithSmartLifecycleIndexer.INDEX_LOCATION), StandardCharsets.UTF_8))
+                .containsExactly("acme.Services", "acme.Services#service", "acme.Services$Nested");
+    }
+
+    @Test
+    void testMetaAnnotatedClassesAndMethodsAreIndexed() throws IOException {
+        // given
+        String meta = "package acme;\n"
+                + "@io.github.alopukhov.gusp.annotations.WithSmartLifecycle public @interface Managed {}";
+        String composed = "package acme;\n"
+                + "@Managed public @interface Composed {}";
+        String services = "package acme;\n"
+                + "@Composed public class Services {\n"
+                + "  @Managed public Object service() { return null; }\n"
+                + "  @Deprecated public Object notService() { return null; }\n"
+                + "}";
+        // when
+        boolean compiled = compile(source("io.github.alopukhov.gusp.annotations.WithSmartLifecycle", ANNOTATION_SOURCE),
+                source("acme.Managed", meta), source("acme.Composed", composed), source("acme.Services", services));
+        // then
+        assertThat(compiled).isTrue();
+        assertThat(Files.readAllLines(output.resolve(WithSmartLifecycleIndexer.INDEX_LOCATION), StandardCharsets.UTF_8))
+                .containsExactly("acme.Services", "acme.Services#service");
+    }
+
+    @Test
+    void testIndexIsNotWrittenWithoutAnnotatedElements() {
+        // when
+        boolean compiled = compile(source("acme.Plain", "package acme; public class Plain {}"));
+        // then
+        assertThat(compiled).isTrue();
+        assertThat(output.resolve(WithSmartLifecycleIndexer.INDEX_LOCATION)).doesNotExist();
+    }
+
+    @Test
+    void testPartialCompilationKeepsEntriesOfOtherClasses() throws IOException {
+        // given
+        String other = "package acme;\n"
+                + "@io.github.alopukhov.gusp.annotations.WithSmartLifecycle public class Other {}";
+        String services = "package acme;\n"
+                + "@io.github.alopukhov.gusp.annotations.WithSmartLifecycle public class Services {}";
+        compile(Collections.emptyList(), source("io.github.alopukhov.gusp.annotations.WithSmartLifecycle", ANNOTATION_SOURCE),
+                source("acme.Other", other), source("acme.Services", services));
+        // when
+        boolean compiled = compile(Arrays.asList("-classpath", output.toString()),
+                source("acme.Services", "package acme; public class Services {}"),
+                source("acme.Added", "package acme;\n"
+                        + "@io.github.alopukhov.gusp.annotations.WithSmartLifecycle public class Added {}"));
+        // then
+        assertThat(compiled).isTrue();
+        assertThat(Files.readAllLines(output.resolve(WithSmartLifecycleIndexer.INDEX_LOCATION), StandardCharsets.UTF_8))
+                .containsExactly("acme.Added", "acme.Other");
+    }
+
+    private boolean compile(JavaFileObject... sources) {
+        return compile(Collections.singletonList("-proc:only"), sources);
+    }
+
+    private boolean compile(List<String> extraOptions, JavaFileObject... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> options = new ArrayList<>(Arrays.asList("-d", output.toString()));
+        options.addAll(extraOptions);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, Arrays.asList(sources));
+        task.setProcessors(Collections.singletonList(new WithSmartLifecycleIndexer()));
+        return task.call();
+    }
+
+    private static JavaFileObject source(String className, String code) {
+        URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.alopukhov.gusp.micrometer;
+
+import io.github.alopukhov.gusp.lifecycle.ServiceLifecycleStats;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binds lifecycle metrics of services managed by {@link ServiceSmartLifecycle ServiceSmartLifecycle} adapters.
+ * <p>
+ * Every service is tagged with {@value #SERVICE_TAG} tag which value is
+ * {@link ServiceSmartLifecycle#getServiceBeanName() service bean name} or service class name if bean name is unknown.
+ * Services of the same class with unknown bean names are distinguished by {@code #N} suffix of class name
+ * (starting from the second one), otherwise registry would keep meters of the first one only.
+ * Following meters are registered for every service:
+ * <ul>
+ *     <li>{@value #STATE} - gauge with ordinal of current {@link com.google.common.util.concurrent.Service.State state}</li>
+ *     <li>{@value #START_DURATION} - duration of last transition from STARTING to RUNNING state</li>
+ *     <li>{@value #STOP_DURATION} - duration of last transition from STOPPING to TERMINATED or FAILED state</li>
+ *     <li>{@value #STARTING_TIME} - time spent in STARTING state including ongoing stay</li>
+ *     <li>{@value #STOPPING_TIME} - time spent in STOPPING state including ongoing stay</li>
+ *     <li>{@value #FAILURES} - count of transitions to FAILED state</li>
+ * </ul>
+ * Unknown durations are reported as NaN.
+ * All values are taken from {@link ServiceLifecycleStats} and cached adapter state,
+ * so binder adds nothing to services themselves and never locks their monitors.
+ * <p>
+ * Register it as a bean, e.g.
+ * <pre>
+ *     &#064;Bean
+ *     public ServiceLifecycleMeterBinder serviceLifecycleMeterBinder(List&lt;ServiceSmartLifecycle&gt; lifecycles) {
+ *         return new ServiceLifecycleMeterBinder(lifecycles);
+ *     }
+ * </pre>
+ */
+public class ServiceLifecycleMeterBinder implements MeterBinder {
+    public static final String SERVICE_TAG = "service";
+    public static final String STATE = "gusp.service.state";
+    public static final String START_DURATION = "gusp.service.start.duration";
+    public static final String STOP_DURATION = "gusp.service.stop.duration";
+    public static final String STARTING_TIME = "gusp.service.starting.time";
+    public static final String STOPPING_TIME = "gusp.service.stopping.time";
+    public static final String FAILURES = "gusp.service.failures";
+
+    private final List<ServiceSmartLifecycle> lifecycles;
+    private final Iterable<Tag> tags;
+
+    public ServiceLifecycleMeterBinder(Collection<? extends ServiceSmartLifecycle> lifecycles) {
+        this(lifecycles, Tags.empty());
+    }
+
+    public ServiceLifecycleMeterBinder(Collection<? extends ServiceSmartLifecycle> lifecycles, Iterable<Tag> tags) {
+        this.lifecycles = new ArrayList<>(requireNonNull(lifecycles, "lifecycles"));
+        this.tags = requireNonNull(tags, "tags");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Map<String, Integer> unnamed = new HashMap<>();
+        for (ServiceSmartLifecycle lifecycle : lifecycles) {
+            String serviceName = lifecycle.getServiceBeanName();
+            if (serviceName == null) {
+                String className = lifecycle.getService().getClass().getName();
+                int index = unnamed.merge(className, 1, Integer::sum);
+                serviceName = index == 1 ? className : className + "#" + index;
+            }
+            bindTo(registry, lifecycle, serviceName);
+        }
+    }
+
+    private void bindTo(MeterRegistry registry, ServiceSmartLifecycle lifecycle, String serviceName) {
+        ServiceLifecycleStats stats = lifecycle.getStats();
+        Tags serviceTags = Tags.concat(tags, SERVICE_TAG, serviceName);
+        Gauge.builder(STATE, lifecycle, l -> l.getState().ordinal())
+                .description("Ordinal of current service state")
+                .tags(serviceTags)
+                .register(registry);
+        registerTimeGauge(registry, START_DURATION, "Duration of transition from STARTING to RUNNING state",
+                serviceTags, stats, ServiceLifecycleStats::getStartDuration);
+        registerTimeGauge(registry, STOP_DURATION, "Duration of transition from STOPPING to TERMINATED or FAILED state",
+                serviceTags, stats, ServiceLifecycleStats::getStopDuration);
+        registerTimeGauge(registry, STARTING_TIME, "Time spent in STARTING state",
+                serviceTags, stats, ServiceLifecycleStats::getTimeInStarting);
+        registerTimeGauge(registry, STOPPING_TIME, "Time spent in STOPPING state",
+                serviceTags, stats, ServiceLifecycleStats::getTimeInStopping);
+        FunctionCounter.builder(FAILURES, stats, ServiceLifecycleStats::getFailures)
+                .description("Count of transitions to FAILED state")
+                .tags(serviceTags)
+                .register(registry);
+    }
+
+    private static void registerTimeGauge(MeterRegistry registry, String name, String description, Tags tags,
+                                          ServiceLifecycleStats stats, ToLongFunction<ServiceLifecycleStats> nanos) {
+        TimeGauge.builder(name, stats, TimeUnit.NANOSECONDS, s -> {
+                    long value = nanos.applyAsLong(s);
+                    return value < 0 ? Double.NaN : value;
+                })
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.alopukhov.gusp.micrometer;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.alopukhov.gusp.micrometer.ServiceLifecycleMeterBinder.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("UnstableApiUsage")
+class ServiceLifecycleMeterBinderTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testRunningService() {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle("running", new TestService(false));
+        new ServiceLifecycleMeterBinder(Arrays.asList(lifecycle)).bindTo(registry);
+        // when
+        lifecycle.start();
+        // then
+        assertThat(gauge(STATE, "running")).isEqualTo(State.RUNNING.ordinal());
+        assertThat(timeGauge(START_DURATION, "running")).isNotNaN().isNotNegative();
+        assertThat(timeGauge(STARTING_TIME, "running")).isEqualTo(timeGauge(START_DURATION, "running"));
+        assertThat(timeGauge(STOP_DURATION, "running")).isNaN();
+        assertThat(timeGauge(STOPPING_TIME, "running")).isNaN();
+        assertThat(registry.get(FAILURES).tag(SERVICE_TAG, "running").functionCounter().count()).isZero();
+        // when
+        lifecycle.stop();
+        // then
+        assertThat(gauge(STATE, "running")).isEqualTo(State.TERMINATED.ordinal());
+        assertThat(timeGauge(STOP_DURATION, "running")).isNotNaN().isNotNegative();
+    }
+
+    @Test
+    void testFailedService() {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle("failed", new TestService(true));
+        new ServiceLifecycleMeterBinder(Arrays.asList(lifecycle)).bindTo(registry);
+        // when
+        lifecycle.getService().startAsync();
+        // then
+        assertThat(gauge(STATE, "failed")).isEqualTo(State.FAILED.ordinal());
+        assertThat(registry.get(FAILURES).tag(SERVICE_TAG, "failed").functionCounter().count()).isEqualTo(1);
+        assertThat(timeGauge(START_DURATION, "failed")).isNaN();
+        assertThat(timeGauge(STARTING_TIME, "failed")).isNotNaN();
+    }
+
+    @Test
+    void testUnnamedServicesOfSameClassAreDistinguished() {
+        // given
+        ServiceSmartLifecycle first = new ServiceSmartLifecycle(new TestService(false));
+        ServiceSmartLifecycle second = new ServiceSmartLifecycle(new TestService(false));
+        new ServiceLifecycleMeterBinder(Arrays.asList(first, second)).bindTo(registry);
+        String className = TestService.class.getName();
+        // when
+        second.start();
+        // then
+        assertThat(gauge(STATE, className)).isEqualTo(State.NEW.ordinal());
+        assertThat(gauge(STATE, className + "#2")).isEqualTo(State.RUNNING.ordinal());
+    }
+
+    private double gauge(String name, String service) {
+        return registry.get(name).tag(SERVICE_TAG, service).gauge().value();
+    }
+
+    private double timeGauge(String name, String service) {
+        return registry.get(name).tag(SERVICE_TAG, service).timeGauge().value(TimeUnit.NANOSECONDS);
+    }
+
+    private static ServiceSmartLifecycle createLifecycle(String name, TestService service) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setServiceBeanName(name);
+        return lifecycle;
+    }
+
+    private static class TestService extends AbstractService {
+        private final boolean failOnStart;
+
+        private TestService(boolean failOnStart) {
+            this.failOnStart = failOnStart;
+        }
+
+        @Override
+        protected void doStart() {
+            if (failOnStart) {
+                notifyFailed(new RuntimeException("Test failure"));
+            } else {
+                notifyStarted();
+            }
+        }
+
+        @Override
+        protected void doStop() {
+            notifyStopped();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.alopukhov.gusp.virtual;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import org.springframework.beans.factory.BeanNameAware;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link AbstractExecutionThreadService} that runs {@code startUp()}, {@code run()} and {@code shutDown()}
+ * on virtual thread instead of platform one.
+ * <p>
+ * Thread is named after service bean name when service is spring bean,
+ * so thread dumps look the same as for services with platform threads.
+ *
+ * @see VirtualThreadExecutors
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class VirtualThreadExecutionThreadService extends AbstractExecutionThreadService implements BeanNameAware {
+    private volatile String beanName;
+
+    @Override
+    public void setBeanName(String name) {
+        this.beanName = name;
+    }
+
+    @Override
+    protected String serviceName() {
+        String beanName = this.beanName;
+        return beanName != null ? beanName : super.serviceName();
+    }
+
+    @Override
+    protected Executor executor() {
+        return VirtualThreadExecutors.newVirtualThreadExecutor(this::serviceName);
+    }
+}
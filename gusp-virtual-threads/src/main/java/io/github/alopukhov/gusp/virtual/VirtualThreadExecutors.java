@@ -0,0 +1,29 @@
+package io.github.alopukhov.gusp.virtual;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executors that run every task on a new virtual thread.
+ * <p>
+ * Intended to be returned from {@code executor()} of guava services that spend most of their time blocked
+ * so they do not hold platform thread each.
+ *
+ * @see VirtualThreadExecutionThreadService
+ * @see VirtualThreadIdleService
+ */
+public final class VirtualThreadExecutors {
+    private VirtualThreadExecutors() {
+    }
+
+    /**
+     * @param threadName supplier of name for every started thread, queried when task is submitted
+     * @return executor that starts new virtual thread for every task
+     */
+    public static Executor newVirtualThreadExecutor(Supplier<String> threadName) {
+        requireNonNull(threadName, "threadName");
+        return command -> Thread.ofVirtual().name(threadName.get()).start(command);
+    }
+}
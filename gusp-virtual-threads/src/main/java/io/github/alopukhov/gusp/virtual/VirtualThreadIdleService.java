@@ -0,0 +1,36 @@
+package io.github.alopukhov.gusp.virtual;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import org.springframework.beans.factory.BeanNameAware;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link AbstractIdleService} that runs {@code startUp()} and {@code shutDown()} on virtual thread
+ * instead of platform one.
+ * <p>
+ * Thread is named after service bean name and current state (e.g. {@code "myService STARTING"})
+ * when service is spring bean.
+ *
+ * @see VirtualThreadExecutors
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class VirtualThreadIdleService extends AbstractIdleService implements BeanNameAware {
+    private volatile String beanName;
+
+    @Override
+    public void setBeanName(String name) {
+        this.beanName = name;
+    }
+
+    @Override
+    protected String serviceName() {
+        String beanName = this.beanName;
+        return beanName != null ? beanName : super.serviceName();
+    }
+
+    @Override
+    protected Executor executor() {
+        return VirtualThreadExecutors.newVirtualThreadExecutor(() -> serviceName() + " " + state());
+    }
+}
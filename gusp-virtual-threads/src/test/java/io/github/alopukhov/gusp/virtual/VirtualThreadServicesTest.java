@@ -0,0 +1,99 @@
+package io.github.alopukhov.gusp.virtual;
+
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadServicesTest {
+    @Test
+    void testExecutionThreadServiceRunsOnVirtualThread() throws Exception {
+        // given
+        RecordingExecutionThreadService service = new RecordingExecutionThreadService();
+        service.setBeanName("worker");
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        // when
+        lifecycle.start();
+        service.running.await();
+        lifecycle.stop();
+        // then
+        assertThat(service.threads).containsOnlyKeys("startUp", "run", "shutDown");
+        assertThat(service.threads.values()).allSatisfy(thread -> {
+            assertThat(thread.isVirtual()).isTrue();
+            assertThat(thread.getName()).isEqualTo("worker");
+        });
+    }
+
+    @Test
+    void testIdleServiceRunsOnVirtualThread() {
+        // given
+        RecordingIdleService service = new RecordingIdleService();
+        service.setBeanName("idle");
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        // when
+        lifecycle.start();
+        lifecycle.stop();
+        // then
+        assertThat(service.threads.get("startUp").isVirtual()).isTrue();
+        assertThat(service.threads.get("startUp").getName()).isEqualTo("idle STARTING");
+        assertThat(service.threads.get("shutDown").isVirtual()).isTrue();
+        assertThat(service.threads.get("shutDown").getName()).isEqualTo("idle STOPPING");
+    }
+
+    @Test
+    void testThreadNameWithoutBeanName() {
+        // given
+        RecordingIdleService service = new RecordingIdleService();
+        // when
+        service.startAsync().awaitRunning();
+        service.stopAsync().awaitTerminated();
+        // then
+        assertThat(service.threads.get("startUp").getName()).isEqualTo("RecordingIdleService STARTING");
+    }
+
+    private static class RecordingExecutionThreadService extends VirtualThreadExecutionThreadService {
+        private final Map<String, Thread> threads = new ConcurrentHashMap<>();
+        private final CountDownLatch running = new CountDownLatch(1);
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        @Override
+        protected void startUp() {
+            threads.put("startUp", Thread.currentThread());
+        }
+
+        @Override
+        protected void run() throws Exception {
+            threads.put("run", Thread.currentThread());
+            running.countDown();
+            stopped.await();
+        }
+
+        @Override
+        protected void triggerShutdown() {
+            stopped.countDown();
+        }
+
+        @Override
+        protected void shutDown() {
+            threads.put("shutDown", Thread.currentThread());
+        }
+    }
+
+    private static class RecordingIdleService extends VirtualThreadIdleService {
+        private final Map<String, Thread> threads = new ConcurrentHashMap<>();
+
+        @Override
+        protected void startUp() {
+            threads.put("startUp", Thread.currentThread());
+        }
+
+        @Override
+        protected void shutDown() {
+            threads.put("shutDown", Thread.currentThread());
+        }
+    }
+}
@@ -6,12 +6,66 @@ import java.lang.annotation.*;
 
 /**
  * Enable all features GUSP project has to offer.
+ * Attributes of this annotation are applied to
+ * {@link io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor WithSmartLifecyclePostprocessor}
+ * created by {@link GuspConfiguration}.
  *
  * @see GuspConfiguration
  */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
-@Import(GuspConfiguration.class)
+@Import({GuspConfiguration.class, EnableGuspAttributesRegistrar.class})
 @Documented
 public @interface EnableGusp {
+    /**
+     * Enables parallel start of services within one phase. Default is false.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor#setParallelStart(boolean)
+     * @see io.github.alopukhov.gusp.lifecycle.PhaseStartCoordinator
+     */
+    boolean parallelStart() default false;
+
+    /**
+     * Enables start and stop of services following their dependencies instead of phases. Default is false.
+     * Takes precedence over {@link #parallelStart()}.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor#setDependencyOrder(boolean)
+     * @see io.github.alopukhov.gusp.lifecycle.DependencyGraphCoordinator
+     */
+    boolean dependencyOrder() default false;
+
+    /**
+     * Time in milliseconds all services together may spend stopping. Default is 0 (no limit).
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor#setShutdownBudget(long)
+     * @see io.github.alopukhov.gusp.lifecycle.ShutdownBudget
+     */
+    long shutdownBudget() default 0;
+
+    /**
+     * Time in milliseconds service may spend starting or stopping before stack traces of its threads are reported.
+     * Default is 0 (no reports).
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor#setStallThreshold(long)
+     * @see io.github.alopukhov.gusp.lifecycle.StallWatchdog
+     */
+    long stallThreshold() default 0;
+
+    /**
+     * Number of threads starting {@link io.github.alopukhov.gusp.lifecycle.StartMode#DEFERRED DEFERRED} services
+     * after context refresh. Default is 1.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor#setDeferredStartThreads(int)
+     * @see io.github.alopukhov.gusp.lifecycle.DeferredStarter
+     */
+    int deferredStartThreads() default 1;
+
+    /**
+     * File of startup profile recording start durations of services across runs. Default is empty (no profile).
+     * With {@link #parallelStart()} services of a phase are started longest first according to profile.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor#setStartupProfile(String)
+     * @see io.github.alopukhov.gusp.lifecycle.StartupProfile
+     */
+    String startupProfile() default "";
 }
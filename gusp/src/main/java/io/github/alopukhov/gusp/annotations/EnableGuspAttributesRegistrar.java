@@ -0,0 +1,26 @@
+package io.github.alopukhov.gusp.annotations;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.type.AnnotationMetadata;
+
+import java.util.Map;
+
+/**
+ * Propagates {@link EnableGusp} attributes to postprocessor bean created by {@link GuspConfiguration}.
+ */
+class EnableGuspAttributesRegistrar implements ImportBeanDefinitionRegistrar {
+    private static final String ANNOTATION_NAME = EnableGusp.class.getName();
+
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        Map<String, Object> annotationAttributes = importingClassMetadata.getAnnotationAttributes(ANNOTATION_NAME);
+        if (annotationAttributes == null || !registry.containsBeanDefinition(GuspConfiguration.POSTPROCESSOR_BEAN_NAME)) {
+            return;
+        }
+        MutablePropertyValues propertyValues = registry.getBeanDefinition(GuspConfiguration.POSTPROCESSOR_BEAN_NAME)
+                .getPropertyValues();
+        annotationAttributes.forEach(propertyValues::add);
+    }
+}
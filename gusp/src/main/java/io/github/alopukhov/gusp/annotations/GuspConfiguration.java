@@ -1,17 +1,33 @@
 package io.github.alopukhov.gusp.annotations;
 
+import io.github.alopukhov.gusp.lifecycle.ServiceReadiness;
+import io.github.alopukhov.gusp.lifecycle.ServiceStateRegistry;
 import io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * Crates support beans for all features of GUSP project.
- * Currently there is only {@link WithSmartLifecyclePostprocessor} bean but this may change in the future.
+ * Crates support beans for all features of GUSP project:
+ * {@link WithSmartLifecyclePostprocessor}, {@link ServiceReadiness} and {@link ServiceStateRegistry} shared by all created adapters.
+ * <p>
+ * Postprocessor is created with default settings. Use {@link EnableGusp @EnableGusp} attributes to adjust them.
  */
 @Configuration
 public class GuspConfiguration {
-    @Bean(name = "gusp.WithSmartLifecyclePostprocessor")
+    public static final String POSTPROCESSOR_BEAN_NAME = "gusp.WithSmartLifecyclePostprocessor";
+
+    @Bean(name = POSTPROCESSOR_BEAN_NAME)
     public static WithSmartLifecyclePostprocessor withSmartLifeCyclePostprocessor() {
         return new WithSmartLifecyclePostprocessor();
     }
+
+    @Bean(name = WithSmartLifecyclePostprocessor.READINESS_BEAN_NAME)
+    public static ServiceReadiness serviceReadiness() {
+        return new ServiceReadiness();
+    }
+
+    @Bean(name = WithSmartLifecyclePostprocessor.STATE_REGISTRY_BEAN_NAME)
+    public static ServiceStateRegistry serviceStateRegistry() {
+        return new ServiceStateRegistry();
+    }
 }
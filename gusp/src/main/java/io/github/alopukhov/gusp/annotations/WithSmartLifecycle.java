@@ -1,12 +1,15 @@
 package io.github.alopukhov.gusp.annotations;
 
 import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.StartMode;
 
 import java.lang.annotation.*;
 
 /**
  * Marker for creation {@link ServiceSmartLifecycle ServiceSmartLifecycle}.
- * Only guava services should be annotated with it.
+ * Only guava services should be annotated with it. Guava {@link com.google.common.util.concurrent.ServiceManager ServiceManager}
+ * beans and bean methods returning group of services ({@code Iterable<Service>} or {@code Service[]}) are supported too:
+ * all services of manager or group are started and stopped together by single adapter.
  * <p>
  * This annotation can be used both as class level annotation or in java configuration. E.g.
  * <pre>
@@ -70,4 +73,134 @@ public @interface WithSmartLifecycle {
      * @see ServiceSmartLifecycle
      */
     boolean stopOnDestroy() default false;
+
+    /**
+     * Sets maximum time in milliseconds to wait for service to start. Default is 0 (no limit).
+     *
+     * @see ServiceSmartLifecycle#setStartTimeout(long)
+     */
+    long startTimeout() default 0;
+
+    /**
+     * Sets maximum time in milliseconds to wait for service to stop. Default is 0 (no limit).
+     *
+     * @see ServiceSmartLifecycle#setStopTimeout(long)
+     */
+    long stopTimeout() default 0;
+
+    /**
+     * Names of service beans which must be running before annotated service is started. Default is empty.
+     * Taken into account only if dependency ordered start is enabled.
+     *
+     * @see ServiceSmartLifecycle#setAfter(String...)
+     * @see EnableGusp#dependencyOrder()
+     */
+    String[] after() default {};
+
+    /**
+     * Runs tasks of annotated service on context wide {@link io.github.alopukhov.gusp.scheduling.SharedScheduler SharedScheduler}
+     * instead of thread per service. Default is false.
+     * Annotated service must implement {@link io.github.alopukhov.gusp.scheduling.SharedSchedulerAware SharedSchedulerAware},
+     * e.g. extend {@link io.github.alopukhov.gusp.scheduling.AbstractSharedScheduledService AbstractSharedScheduledService}.
+     *
+     * @see ServiceSmartLifecycle#setSharedScheduler(io.github.alopukhov.gusp.scheduling.SharedScheduler)
+     */
+    boolean sharedScheduler() default false;
+
+    /**
+     * Sets start mode for created bean. Default is {@link StartMode#EAGER EAGER}.
+     * <p>
+     * {@link StartMode#LAZY LAZY} service is started on first call through its interfaces:
+     * annotated bean is replaced with proxy implementing all interfaces of service,
+     * so it must be injected by interface.
+     *
+     * {@link StartMode#DEFERRED DEFERRED} service is started in background once context is refreshed.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.LazyServiceProxyFactoryBean
+     * @see io.github.alopukhov.gusp.lifecycle.DeferredStarter
+     */
+    StartMode startMode() default StartMode.EAGER;
+
+    /**
+     * Sets priority of {@link StartMode#DEFERRED DEFERRED} service: services with higher priority are started first.
+     * Default is 0.
+     *
+     * @see ServiceSmartLifecycle#setPriority(int)
+     */
+    int priority() default 0;
+
+    /**
+     * Sets maximum number of warm-up iterations for created bean. Default is 1.
+     * Used only if annotated service implements {@link io.github.alopukhov.gusp.lifecycle.WarmUp WarmUp}.
+     *
+     * @see ServiceSmartLifecycle#setWarmUpIterations(int)
+     */
+    int warmUpIterations() default 1;
+
+    /**
+     * Sets maximum warm-up time in milliseconds for created bean. Default is 0 (no limit).
+     * Used only if annotated service implements {@link io.github.alopukhov.gusp.lifecycle.WarmUp WarmUp}.
+     *
+     * @see ServiceSmartLifecycle#setWarmUpTimeout(long)
+     */
+    long warmUpTimeout() default 0;
+
+    /**
+     * Sets maximum drain time in milliseconds for created bean. Default is 0 (no limit).
+     * Used only if annotated service implements {@link io.github.alopukhov.gusp.lifecycle.Drainable Drainable}.
+     *
+     * @see ServiceSmartLifecycle#setDrainTimeout(long)
+     */
+    long drainTimeout() default 0;
+
+    /**
+     * Enables supervision of annotated service: failed service is replaced with fresh instance. Default is false.
+     * Annotated bean must be prototype. It is excluded from autowiring in favour of facade implementing
+     * all its interfaces, so it must be injected by interface.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.SupervisedService
+     * @see io.github.alopukhov.gusp.lifecycle.SupervisedServiceProxyFactoryBean
+     */
+    boolean supervised() default false;
+
+    /**
+     * Sets delay in milliseconds before first restart of supervised service. Default is 100.
+     * Each subsequent restart within restart window doubles it.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.SupervisedService#setRestartBackoff(long)
+     */
+    long restartBackoff() default 100;
+
+    /**
+     * Sets maximum delay in milliseconds before restart of supervised service. Default is 30000.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.SupervisedService#setMaxRestartBackoff(long)
+     */
+    long maxRestartBackoff() default 30000;
+
+    /**
+     * Sets maximum number of restarts of supervised service within restart window. Default is 5.
+     * Supervised service fails once it is exceeded.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.SupervisedService#setMaxRestarts(int)
+     */
+    int maxRestarts() default 5;
+
+    /**
+     * Sets time window in milliseconds for restart intensity limit of supervised service. Default is 60000.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.SupervisedService#setRestartWindow(long)
+     */
+    long restartWindow() default 60000;
+
+    /**
+     * Replicates annotated service. Default is empty (single instance).
+     * Accepts fixed count (e.g. {@code "4"}), {@code "cores"} or {@code "cores*k"}.
+     * Annotated bean must be prototype. Its instances are created once, receive their index if they implement
+     * {@link io.github.alopukhov.gusp.lifecycle.InstanceIndexAware InstanceIndexAware} and are started and stopped
+     * together by single adapter. Prototype itself is excluded from autowiring.
+     *
+     * @see io.github.alopukhov.gusp.lifecycle.ServiceInstancesFactoryBean
+     */
+    String instances() default "";
 }
@@ -0,0 +1,50 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Base class for {@link Drainable} execution thread services.
+ * <p>
+ * {@link #run()} should stop taking new work once {@link #isIntakeStopped()} but keep processing accepted work
+ * while service {@link #isRunning() is running}. Escalation interrupts thread executing {@link #run()}.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class AbstractDrainableExecutionThreadService extends AbstractExecutionThreadService implements Drainable {
+    private volatile boolean intakeStopped;
+    private volatile Thread runner;
+
+    @Override
+    public void stopIntake() {
+        intakeStopped = true;
+    }
+
+    /**
+     * @return true if service must not accept new work
+     */
+    protected boolean isIntakeStopped() {
+        return intakeStopped;
+    }
+
+    @Override
+    public void escalate() {
+        Thread runner = this.runner;
+        if (runner != null) {
+            runner.interrupt();
+        }
+    }
+
+    @Override
+    protected Executor executor() {
+        Executor executor = super.executor();
+        return command -> executor.execute(() -> {
+            runner = Thread.currentThread();
+            try {
+                command.run();
+            } finally {
+                runner = null;
+            }
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Starts {@link StartMode#DEFERRED DEFERRED} services in background once context is refreshed.
+ * <p>
+ * Members with autoStartup enabled are started in order of their priority (higher first) on bounded pool
+ * of low priority daemon threads, so they do not delay context refresh and compete for CPU as little as possible.
+ * Each member is started with {@link ServiceSmartLifecycle#start()}. Failed start is logged.
+ * Pending starts are dropped once context is closed.
+ * <p>
+ * Members are registered with {@link ServiceSmartLifecycle#setDeferredStarter(DeferredStarter)}.
+ */
+public class DeferredStarter implements ApplicationListener<ApplicationContextEvent>, ApplicationContextAware {
+    private static final Log LOG = LogFactory.getLog(DeferredStarter.class);
+
+    private final List<ServiceSmartLifecycle> members = new CopyOnWriteArrayList<>();
+    private int threads = 1;
+    private ApplicationContext applicationContext;
+    private ExecutorService executor;
+    private boolean started;
+    private volatile boolean closed;
+
+    void register(ServiceSmartLifecycle member) {
+        members.add(requireNonNull(member, "member"));
+    }
+
+    void unregister(ServiceSmartLifecycle member) {
+        members.remove(member);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets number of threads starting deferred services. Default is 1.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        if (applicationContext != null && event.getApplicationContext() != applicationContext) {
+            //Event of child context
+            return;
+        }
+        if (event instanceof ContextRefreshedEvent) {
+            startDeferred();
+        } else if (event instanceof ContextClosedEvent) {
+            close();
+        }
+    }
+
+    private synchronized void startDeferred() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        List<ServiceSmartLifecycle> deferred = new ArrayList<>();
+        for (ServiceSmartLifecycle member : members) {
+            if (member.isAutoStartupDeferred()) {
+                deferred.add(member);
+            }
+        }
+        if (deferred.isEmpty()) {
+            return;
+        }
+        deferred.sort(Comparator.comparingInt(ServiceSmartLifecycle::getPriority).reversed());
+        executor = createExecutor(Math.max(1, Math.min(threads, deferred.size())));
+        for (ServiceSmartLifecycle member : deferred) {
+            executor.execute(() -> start(member));
+        }
+        executor.shutdown();
+    }
+
+    private void start(ServiceSmartLifecycle member) {
+        if (closed) {
+            return;
+        }
+        try {
+            member.start();
+        } catch (RuntimeException e) {
+            LOG.error("Deferred start of service " + member.describe() + " failed", e);
+        }
+    }
+
+    private synchronized void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "gusp-deferred-start-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,468 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.util.concurrent.Service.State.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Starts and stops {@link ServiceSmartLifecycle ServiceSmartLifecycle} members following their dependency graph
+ * instead of phases.
+ * <p>
+ * Service depends on other managed service if:
+ * <ul>
+ *     <li>its bean depends on other service bean directly or through non managed beans
+ *     (dependsOn, constructor or property references) - requires {@link BeanFactory} to be set</li>
+ *     <li>other service bean name is listed in {@link ServiceSmartLifecycle#setAfter(String...) after} property</li>
+ * </ul>
+ * When any member is started all auto startup members and their dependencies are started: every service is
+ * started as soon as all services it depends on are running. Service is never started if any of its dependencies fails.
+ * First start awaits all started services that have asyncStart feature disabled.
+ * When any member is stopped all running members are stopped: every service is stopped as soon as all services
+ * that depend on it are stopped. Start and stop graphs are built once per start and stop and reused
+ * for subsequent members.
+ * <p>
+ * Phases of members are ignored. Cyclic dependencies are reported with {@link IllegalStateException} on start.
+ * <p>
+ * Enable it with {@link io.github.alopukhov.gusp.annotations.EnableGusp#dependencyOrder() @EnableGusp(dependencyOrder = true)}
+ * or {@link WithSmartLifecyclePostprocessor#setDependencyOrder(boolean)}.
+ *
+ * @see ServiceSmartLifecycle
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class DependencyGraphCoordinator extends LifecycleCoordinator implements BeanFactoryAware {
+    private final List<ServiceSmartLifecycle> members = new CopyOnWriteArrayList<>();
+    private ConfigurableBeanFactory beanFactory;
+    private Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> dependencies;
+    private StartGraph startGraph;
+    private volatile Map<ServiceSmartLifecycle, StopNode> stopNodes;
+
+    @Override
+    public synchronized void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory instanceof ConfigurableBeanFactory ? (ConfigurableBeanFactory) beanFactory : null;
+        this.dependencies = null;
+    }
+
+    @Override
+    synchronized void register(ServiceSmartLifecycle member) {
+        members.add(requireNonNull(member, "member"));
+        dependencies = null;
+    }
+
+    @Override
+    synchronized void unregister(ServiceSmartLifecycle member) {
+        members.remove(member);
+        dependencies = null;
+    }
+
+    /**
+     * Starts provided member, all auto startup members and their dependencies.
+     * First start awaits every started member that has asyncStart feature disabled, otherwise spring would skip
+     * them as they are already running (starting). Subsequent starts reuse graph and await provided member only.
+     *
+     * @throws IllegalStateException if any awaited service fails to start
+     */
+    @Override
+    void start(ServiceSmartLifecycle starting) {
+        StartGraph graph;
+        List<StartNode> awaited = new ArrayList<>();
+        synchronized (this) {
+            graph = startGraph;
+            StartNode node = graph == null ? null : graph.nodes.get(starting);
+            if (node != null) {
+                if (!starting.isAsyncStart()) {
+                    awaited.add(node);
+                }
+            } else {
+                graph = startAsync(starting);
+                for (StartNode started : graph.nodes.values()) {
+                    if (!started.member.isAsyncStart()) {
+                        awaited.add(started);
+                    }
+                }
+            }
+        }
+        graph.awaitRunning(awaited);
+    }
+
+    @Override
+    synchronized boolean stopAsync(ServiceSmartLifecycle stopping) {
+        Map<ServiceSmartLifecycle, StopNode> current = stopNodes;
+        if (current == null) {
+            startGraph = null;
+            stopNodes = buildStopGraph(stopping);
+        } else if (!current.containsKey(stopping)) {
+            //Service was not running when stop began, so nothing waits for it
+            stopping.stopServiceAsync();
+        }
+        return true;
+    }
+
+    private Map<ServiceSmartLifecycle, StopNode> buildStopGraph(ServiceSmartLifecycle stopping) {
+        Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> graph = dependencies();
+        Map<ServiceSmartLifecycle, StopNode> nodes = new LinkedHashMap<>();
+        for (ServiceSmartLifecycle member : members) {
+            State state = member.getService().state();
+            if (member == stopping || state == STARTING || state == RUNNING || state == STOPPING) {
+                nodes.put(member, new StopNode(member));
+            }
+        }
+        nodes.putIfAbsent(stopping, new StopNode(stopping));
+        for (StopNode node : nodes.values()) {
+            for (ServiceSmartLifecycle dependency : graph.getOrDefault(node.member, Collections.emptySet())) {
+                StopNode dependencyNode = nodes.get(dependency);
+                if (dependencyNode != null) {
+                    dependencyNode.pendingDependents.incrementAndGet();
+                    node.dependencies.add(dependencyNode);
+                }
+            }
+        }
+        for (StopNode node : nodes.values()) {
+            node.listen();
+        }
+        for (StopNode node : nodes.values()) {
+            node.stopIfReady();
+        }
+        return nodes;
+    }
+
+    @Override
+    void stopTimedOut(ServiceSmartLifecycle member) {
+        Map<ServiceSmartLifecycle, StopNode> nodes = stopNodes;
+        StopNode node = nodes == null ? null : nodes.get(member);
+        if (node != null) {
+            //Do not make dependencies wait for service nobody waits anymore
+            node.resolve();
+        }
+    }
+
+    private synchronized StartGraph startAsync(ServiceSmartLifecycle starting) {
+        Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> graph = dependencies();
+        StartGraph startGraph = new StartGraph();
+        Map<ServiceSmartLifecycle, StartNode> nodes = startGraph.nodes;
+        Deque<ServiceSmartLifecycle> queue = new ArrayDeque<>();
+        queue.add(starting);
+        for (ServiceSmartLifecycle member : members) {
+            if (member.isAutoStartup()) {
+                queue.add(member);
+            }
+        }
+        while (!queue.isEmpty()) {
+            ServiceSmartLifecycle member = queue.poll();
+            if (!nodes.containsKey(member)) {
+                nodes.put(member, new StartNode(startGraph, member));
+                queue.addAll(graph.getOrDefault(member, Collections.emptySet()));
+            }
+        }
+        for (StartNode node : nodes.values()) {
+            for (ServiceSmartLifecycle dependency : graph.getOrDefault(node.member, Collections.emptySet())) {
+                node.pendingDependencies.incrementAndGet();
+                nodes.get(dependency).dependents.add(node);
+            }
+        }
+        for (StartNode node : nodes.values()) {
+            node.listen();
+        }
+        this.startGraph = startGraph;
+        stopNodes = null;
+        for (StartNode node : nodes.values()) {
+            node.startIfReady();
+        }
+        return startGraph;
+    }
+
+    private synchronized Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> dependencies() {
+        if (dependencies == null) {
+            Map<String, ServiceSmartLifecycle> byServiceBeanName = new HashMap<>();
+            for (ServiceSmartLifecycle member : members) {
+                if (member.getServiceBeanName() != null) {
+                    byServiceBeanName.put(member.getServiceBeanName(), member);
+                }
+            }
+            Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> result = new LinkedHashMap<>();
+            for (ServiceSmartLifecycle member : members) {
+                result.put(member, resolveDependencies(member, byServiceBeanName));
+            }
+            checkForCycles(result);
+            dependencies = result;
+        }
+        return dependencies;
+    }
+
+    private Set<ServiceSmartLifecycle> resolveDependencies(ServiceSmartLifecycle member,
+                                                           Map<String, ServiceSmartLifecycle> byServiceBeanName) {
+        Set<ServiceSmartLifecycle> result = new LinkedHashSet<>();
+        for (String name : member.getAfter()) {
+            ServiceSmartLifecycle dependency = byServiceBeanName.get(name);
+            if (dependency == null) {
+                throw new IllegalStateException("Service " + describe(member) + " should be started after ["
+                        + name + "] but there is no such managed service");
+            }
+            result.add(dependency);
+        }
+        String serviceBeanName = member.getServiceBeanName();
+        if (beanFactory != null && serviceBeanName != null) {
+            Set<String> visited = new HashSet<>();
+            Deque<String> queue = new ArrayDeque<>();
+            queue.add(serviceBeanName);
+            while (!queue.isEmpty()) {
+                for (String name : beanFactory.getDependenciesForBean(queue.poll())) {
+                    if (!visited.add(name)) {
+                        continue;
+                    }
+                    ServiceSmartLifecycle dependency = byServiceBeanName.get(name);
+                    if (dependency == null) {
+                        queue.add(name);
+                    } else if (dependency != member) {
+                        result.add(dependency);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void checkForCycles(Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> dependencies) {
+        Set<ServiceSmartLifecycle> checked = new HashSet<>();
+        for (ServiceSmartLifecycle member : dependencies.keySet()) {
+            checkForCycles(member, dependencies, new ArrayList<>(), checked);
+        }
+    }
+
+    private static void checkForCycles(ServiceSmartLifecycle member,
+                                       Map<ServiceSmartLifecycle, Set<ServiceSmartLifecycle>> dependencies,
+                                       List<ServiceSmartLifecycle> path, Set<ServiceSmartLifecycle> checked) {
+        if (checked.contains(member)) {
+            return;
+        }
+        int index = path.indexOf(member);
+        if (index >= 0) {
+            StringJoiner cycle = new StringJoiner(" -> ", "Cyclic service dependencies: ", "");
+            for (ServiceSmartLifecycle cycleMember : path.subList(index, path.size())) {
+                cycle.add(describe(cycleMember));
+            }
+            cycle.add(describe(member));
+            throw new IllegalStateException(cycle.toString());
+        }
+        path.add(member);
+        for (ServiceSmartLifecycle dependency : dependencies.getOrDefault(member, Collections.emptySet())) {
+            checkForCycles(dependency, dependencies, path, checked);
+        }
+        path.remove(path.size() - 1);
+        checked.add(member);
+    }
+
+    private static String describe(ServiceSmartLifecycle member) {
+        return member.describe();
+    }
+
+    /**
+     * Start nodes of one start. Nodes notify graph once they are resolved.
+     */
+    private static class StartGraph {
+        private final long startedAt = System.nanoTime();
+        private final Map<ServiceSmartLifecycle, StartNode> nodes = new LinkedHashMap<>();
+
+        private synchronized void resolved() {
+            notifyAll();
+        }
+
+        /**
+         * Awaits until all provided nodes are running.
+         * Start timeouts of members are counted from the moment graph was built.
+         *
+         * @throws IllegalStateException as soon as any node fails or exceeds start timeout of its member
+         */
+        private synchronized void awaitRunning(List<StartNode> awaited) {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    StartNode first = null;
+                    boolean pending = false;
+                    for (StartNode node : awaited) {
+                        if (!node.done) {
+                            pending = true;
+                            if (node.member.getStartTimeout() > 0 && (first == null || deadline(node) - deadline(first) < 0)) {
+                                first = node;
+                            }
+                        } else if (node.failure != null) {
+                            throw node.failure;
+                        }
+                    }
+                    if (!pending) {
+                        return;
+                    }
+                    try {
+                        if (first == null) {
+                            wait();
+                            continue;
+                        }
+                        long remaining = deadline(first) - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw first.member.startTimedOut();
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private long deadline(StartNode node) {
+            return startedAt + TimeUnit.MILLISECONDS.toNanos(node.member.getStartTimeout());
+        }
+    }
+
+    private static class StartNode extends Service.Listener {
+        private final StartGraph graph;
+        private final ServiceSmartLifecycle member;
+        private final List<StartNode> dependents = new ArrayList<>();
+        private final AtomicInteger pendingDependencies = new AtomicInteger();
+        private final AtomicBoolean startIssued = new AtomicBoolean();
+        private final AtomicBoolean resolved = new AtomicBoolean();
+        private volatile IllegalStateException failure;
+        private volatile boolean done;
+
+        private StartNode(StartGraph graph, ServiceSmartLifecycle member) {
+            this.graph = graph;
+            this.member = member;
+        }
+
+        private void listen() {
+            Service service = member.getService();
+            State state = service.state();
+            if (state == NEW || state == STARTING) {
+                service.addListener(this, Runnable::run);
+                //Listener is responsible for resolving node only once
+                state = service.state();
+            }
+            if (state != NEW && state != STARTING) {
+                resolve(state);
+            }
+        }
+
+        private void startIfReady() {
+            if (pendingDependencies.get() == 0 && member.getService().state() == NEW && startIssued.compareAndSet(false, true)) {
+                member.getService().startAsync();
+            }
+        }
+
+        @Override
+        public void running() {
+            resolve(RUNNING);
+        }
+
+        @Override
+        public void stopping(State from) {
+            resolve(STOPPING);
+        }
+
+        @Override
+        public void terminated(State from) {
+            resolve(TERMINATED);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            resolve(FAILED);
+        }
+
+        private void resolve(State state) {
+            if (state == RUNNING) {
+                if (markResolved(null)) {
+                    for (StartNode dependent : dependents) {
+                        if (dependent.pendingDependencies.decrementAndGet() == 0) {
+                            dependent.startIfReady();
+                        }
+                    }
+                }
+            } else {
+                Service service = member.getService();
+                fail(new IllegalStateException("Expected the service " + service + " to be RUNNING, but it was " + state,
+                        state == FAILED ? service.failureCause() : null));
+            }
+        }
+
+        private void fail(IllegalStateException failure) {
+            if (markResolved(failure)) {
+                for (StartNode dependent : dependents) {
+                    dependent.fail(new IllegalStateException("Service " + describe(dependent.member)
+                            + " can't be started as its dependency " + describe(member) + " failed to start", failure));
+                }
+            }
+        }
+
+        private boolean markResolved(IllegalStateException failure) {
+            if (resolved.compareAndSet(false, true)) {
+                this.failure = failure;
+                done = true;
+                graph.resolved();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class StopNode extends Service.Listener {
+        private final ServiceSmartLifecycle member;
+        private final List<StopNode> dependencies = new ArrayList<>();
+        private final AtomicInteger pendingDependents = new AtomicInteger();
+        private final AtomicBoolean stopIssued = new AtomicBoolean();
+        private final AtomicBoolean resolved = new AtomicBoolean();
+
+        private StopNode(ServiceSmartLifecycle member) {
+            this.member = member;
+        }
+
+        private void listen() {
+            Service service = member.getService();
+            service.addListener(this, Runnable::run);
+            State state = service.state();
+            if (state == TERMINATED || state == FAILED) {
+                //Listener is responsible for resolving node only once
+                resolve();
+            }
+        }
+
+        private void stopIfReady() {
+            if (pendingDependents.get() == 0 && stopIssued.compareAndSet(false, true)) {
+                member.stopServiceAsync();
+            }
+        }
+
+        @Override
+        public void terminated(State from) {
+            resolve();
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            resolve();
+        }
+
+        private void resolve() {
+            if (resolved.compareAndSet(false, true)) {
+                for (StopNode dependency : dependencies) {
+                    if (dependency.pendingDependents.decrementAndGet() == 0) {
+                        dependency.stopIfReady();
+                    }
+                }
+            }
+        }
+    }
+}
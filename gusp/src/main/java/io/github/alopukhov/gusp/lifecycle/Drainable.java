@@ -0,0 +1,28 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+/**
+ * Graceful drain protocol of service. Implement it in service to finish in-flight work on stop instead of dropping it.
+ * <p>
+ * When stop is requested {@link ServiceSmartLifecycle ServiceSmartLifecycle} calls {@link #stopIntake()},
+ * then polls {@link #remainingWork()} until it drops to zero or drain timeout elapses, calling {@link #escalate()}
+ * in the latter case. Service is asked to stop only after that, so it stays running while draining.
+ *
+ * @see ServiceSmartLifecycle#setDrainTimeout(long)
+ * @see AbstractDrainableExecutionThreadService
+ */
+public interface Drainable {
+    /**
+     * Stops accepting new work. Called once, must not block.
+     */
+    void stopIntake();
+
+    /**
+     * @return amount of accepted but not yet finished work, zero or less once drained
+     */
+    long remainingWork();
+
+    /**
+     * Aborts remaining work as drain timeout elapsed. Must not block.
+     */
+    void escalate();
+}
@@ -0,0 +1,344 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.util.concurrent.Service.State.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Service that runs between minReplicas and maxReplicas replicas of another service scaling them by {@link LoadSignal}.
+ * <p>
+ * Replicas are obtained from {@link ObjectFactory} (e.g. prototype bean). Replica set is running once its first
+ * minReplicas replicas are running. Load is checked every checkInterval: one replica is added if load is at least
+ * scaleUpThreshold and one replica is retired if load is at most scaleDownThreshold. Gap between thresholds
+ * and cooldown after each scaling step prevent flapping. Retired replica is drained first if it is {@link Drainable}.
+ * Failure of any active replica fails replica set and stops remaining replicas.
+ * Scaling runs on shared lifecycle timer thread, so {@code startAsync()} of replicas must not block.
+ * Replicas are created on separate thread and handed back to timer thread.
+ * <p>
+ * Declare it as bean annotated with {@link io.github.alopukhov.gusp.annotations.WithSmartLifecycle WithSmartLifecycle}
+ * to manage it like any other service.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ElasticReplicaSet extends AbstractService {
+    private static final Log LOG = LogFactory.getLog(ElasticReplicaSet.class);
+
+    private final ObjectFactory<? extends Service> factory;
+    private final LoadSignal signal;
+    private final List<Service> replicas = new CopyOnWriteArrayList<>();
+    private final Set<Service> retiring = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ScheduledFuture<?> pendingCheck;
+    private long lastScaledAt;
+    private boolean started;
+    private int creating;
+    private int minReplicas = 1;
+    private int maxReplicas = Runtime.getRuntime().availableProcessors();
+    private double scaleUpThreshold = 0.8;
+    private double scaleDownThreshold = 0.3;
+    private long cooldown = 10000;
+    private long checkInterval = 1000;
+    private long drainTimeout;
+
+    public ElasticReplicaSet(ObjectFactory<? extends Service> factory, LoadSignal signal) {
+        this.factory = requireNonNull(factory, "factory");
+        this.signal = requireNonNull(signal, "signal");
+    }
+
+    /**
+     * @return snapshot of active replicas. Retiring replicas are not included
+     */
+    public List<Service> getReplicas() {
+        return new ArrayList<>(replicas);
+    }
+
+    public int getMinReplicas() {
+        return minReplicas;
+    }
+
+    /**
+     * Sets minimum number of replicas. Must be positive. Default is 1.
+     */
+    public void setMinReplicas(int minReplicas) {
+        this.minReplicas = minReplicas;
+    }
+
+    public int getMaxReplicas() {
+        return maxReplicas;
+    }
+
+    /**
+     * Sets maximum number of replicas. Default is number of available processors.
+     */
+    public void setMaxReplicas(int maxReplicas) {
+        this.maxReplicas = maxReplicas;
+    }
+
+    public double getScaleUpThreshold() {
+        return scaleUpThreshold;
+    }
+
+    /**
+     * Sets load at which replica is added. Default is 0.8.
+     */
+    public void setScaleUpThreshold(double scaleUpThreshold) {
+        this.scaleUpThreshold = scaleUpThreshold;
+    }
+
+    public double getScaleDownThreshold() {
+        return scaleDownThreshold;
+    }
+
+    /**
+     * Sets load at which replica is retired. Must be less than scale up threshold. Default is 0.3.
+     */
+    public void setScaleDownThreshold(double scaleDownThreshold) {
+        this.scaleDownThreshold = scaleDownThreshold;
+    }
+
+    public long getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Sets minimum time in milliseconds between scaling steps. Default is 10000.
+     */
+    public void setCooldown(long cooldown) {
+        this.cooldown = cooldown;
+    }
+
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * Sets interval in milliseconds between load checks. Default is 1000.
+     */
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * Sets maximum drain time in milliseconds of retired {@link Drainable} replica. Default is 0 (no limit).
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Override
+    protected void doStart() {
+        LifecycleTimer.execute(this::startReplicas);
+    }
+
+    @Override
+    protected void doStop() {
+        LifecycleTimer.execute(this::stopReplicas);
+    }
+
+    //Methods below are executed on lifecycle timer thread only
+
+    private void startReplicas() {
+        if (minReplicas <= 0 || maxReplicas < minReplicas || scaleDownThreshold >= scaleUpThreshold) {
+            notifyFailed(new IllegalStateException("Invalid scaling settings of " + this));
+            return;
+        }
+        for (int i = 0; i < minReplicas; i++) {
+            addReplica();
+        }
+    }
+
+    private void stopReplicas() {
+        if (pendingCheck != null) {
+            pendingCheck.cancel(false);
+            pendingCheck = null;
+        }
+        for (Service replica : new ArrayList<>(replicas)) {
+            retire(replica);
+        }
+        stopped();
+    }
+
+    private void addReplica() {
+        creating++;
+        LifecycleTimer.create(() -> requireNonNull(factory.getObject(), "service"), this::replicaCreated);
+    }
+
+    private void replicaCreated(Service replica, Throwable failure) {
+        creating--;
+        State state = state();
+        if (state != STARTING && state != RUNNING && (state != STOPPING || started)) {
+            //Replica set was stopped or failed while replica was created, replica is never started
+            stopped();
+            return;
+        }
+        if (failure != null) {
+            LOG.error("Failed to create new replica of " + this, failure);
+            failed(failure);
+            return;
+        }
+        replicas.add(replica);
+        replica.addListener(new ReplicaListener(replica), LifecycleTimer::execute);
+        replica.startAsync();
+    }
+
+    private void retire(Service replica) {
+        replicas.remove(replica);
+        retiring.add(replica);
+        if (replica instanceof Drainable && replica.state() == RUNNING) {
+            long timeout = drainTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(drainTimeout) : -1;
+            new ServiceDrain((Drainable) replica, replica.toString(), timeout, replica::stopAsync).start();
+        } else {
+            replica.stopAsync();
+        }
+    }
+
+    private void replicaRunning(Service replica) {
+        State state = state();
+        if (!started && (state == STARTING || state == STOPPING) && creating == 0 && allRunning()) {
+            started = true;
+            lastScaledAt = System.nanoTime();
+            notifyStarted();
+            scheduleCheck();
+        }
+    }
+
+    private boolean allRunning() {
+        for (Service replica : replicas) {
+            if (replica.state() != RUNNING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void replicaTerminated(Service replica) {
+        retiring.remove(replica);
+        //Replica which stopped on its own is replaced by next check if required
+        State state = state();
+        if (replicas.remove(replica) && !started && (state == STARTING || state == STOPPING)) {
+            failed(new IllegalStateException("Replica " + replica + " terminated before " + this + " started"));
+            return;
+        }
+        stopped();
+    }
+
+    private void replicaFailed(Service replica, Throwable cause) {
+        if (retiring.remove(replica)) {
+            LOG.warn("Retired replica " + replica + " failed to stop", cause);
+            stopped();
+            return;
+        }
+        replicas.remove(replica);
+        failed(cause);
+    }
+
+    private void failed(Throwable cause) {
+        State state = state();
+        if (state == STARTING || state == RUNNING || state == STOPPING) {
+            notifyFailed(cause);
+            if (pendingCheck != null) {
+                pendingCheck.cancel(false);
+                pendingCheck = null;
+            }
+            for (Service replica : new ArrayList<>(replicas)) {
+                retire(replica);
+            }
+        }
+    }
+
+    private void stopped() {
+        if (state() == STOPPING && started && creating == 0 && replicas.isEmpty() && retiring.isEmpty()) {
+            notifyStopped();
+        }
+    }
+
+    private void scheduleCheck() {
+        pendingCheck = LifecycleTimer.schedule(this::check, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void check() {
+        pendingCheck = null;
+        if (state() != RUNNING) {
+            return;
+        }
+        if (creating > 0) {
+            //Previous scaling step is still in progress
+            scheduleCheck();
+            return;
+        }
+        int active = replicas.size();
+        if (active < minReplicas) {
+            scale(active, active + 1, Double.NaN);
+        } else if (System.nanoTime() - lastScaledAt >= TimeUnit.MILLISECONDS.toNanos(cooldown)) {
+            double load;
+            try {
+                load = signal.load(active);
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to get load of " + this, e);
+                load = Double.NaN;
+            }
+            if (load >= scaleUpThreshold && active < maxReplicas) {
+                scale(active, active + 1, load);
+            } else if (load <= scaleDownThreshold && active > minReplicas) {
+                scale(active, active - 1, load);
+            }
+        }
+        if (state() == RUNNING) {
+            scheduleCheck();
+        }
+    }
+
+    private void scale(int from, int to, double load) {
+        LOG.info("Scaling " + this + " from " + from + " to " + to + " replicas, load is " + load);
+        lastScaledAt = System.nanoTime();
+        if (to > from) {
+            addReplica();
+        } else {
+            retire(replicas.get(replicas.size() - 1));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Elastic replica set of " + replicas.size() + " [" + state() + "]";
+    }
+
+    private class ReplicaListener extends Service.Listener {
+        private final Service replica;
+
+        private ReplicaListener(Service replica) {
+            this.replica = replica;
+        }
+
+        @Override
+        public void running() {
+            replicaRunning(replica);
+        }
+
+        @Override
+        public void terminated(State from) {
+            replicaTerminated(replica);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            replicaFailed(replica, failure);
+        }
+    }
+}
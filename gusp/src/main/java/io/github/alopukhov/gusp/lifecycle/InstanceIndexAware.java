@@ -0,0 +1,17 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+/**
+ * Replicated service aware of its position among instances. Implement it to partition work by instance index.
+ *
+ * @see io.github.alopukhov.gusp.annotations.WithSmartLifecycle#instances()
+ * @see ServiceInstancesFactoryBean
+ */
+public interface InstanceIndexAware {
+    /**
+     * Called before service is started.
+     *
+     * @param index index of this instance, from 0 (inclusive) to instances (exclusive)
+     * @param instances total number of instances
+     */
+    void setInstanceIndex(int index, int instances);
+}
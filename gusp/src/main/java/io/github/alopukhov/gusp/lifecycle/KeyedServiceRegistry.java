@@ -0,0 +1,403 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.support.BeanDefinitionValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.google.common.util.concurrent.Service.State.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Service that keeps one instance of another service per key (e.g. per tenant), started on first use.
+ * <p>
+ * {@link #get(Object)} creates instance for key with provided factory or from prototype bean (key is passed as
+ * constructor argument), starts it and waits until it is running. Concurrent first access to the same key creates
+ * single instance. Instance is created and started outside of map operations, so factory may use registry too.
+ * Instances idle for more than idleTimeout and least recently used instances beyond maxSize are
+ * evicted: they are removed from registry and stopped (drained first if they are {@link Drainable}), so callers
+ * should not keep instances between calls. Instance which stops or fails on its own is removed too and recreated
+ * on next access. Stop of registry stops all instances concurrently.
+ * Instances are created and started by calling thread, so {@code startAsync()} of instances must not block.
+ * <p>
+ * Declare it as bean annotated with {@link io.github.alopukhov.gusp.annotations.WithSmartLifecycle WithSmartLifecycle}
+ * to manage it like any other service.
+ *
+ * @param <K> type of key
+ * @param <S> type of service
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class KeyedServiceRegistry<K, S extends Service> extends AbstractService implements BeanFactoryAware {
+    private static final Log LOG = LogFactory.getLog(KeyedServiceRegistry.class);
+    private static final Set<State> TERMINAL_STATES = EnumSet.of(TERMINATED, FAILED);
+
+    private final String prototypeBeanName;
+    private volatile Function<? super K, ? extends S> factory;
+    private final Map<K, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Entry> retiring = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ScheduledFuture<?> pendingCheck;
+    private int maxSize;
+    private long idleTimeout;
+    private long checkInterval = 1000;
+    private long startTimeout;
+    private long drainTimeout;
+
+    /**
+     * Creates registry creating instances with provided factory.
+     */
+    public KeyedServiceRegistry(Function<? super K, ? extends S> factory) {
+        this.factory = requireNonNull(factory, "factory");
+        this.prototypeBeanName = null;
+    }
+
+    /**
+     * Creates registry creating instances from prototype bean with provided name. Key is passed as its constructor
+     * (or factory method) argument. Registry must be created by bean factory.
+     */
+    public KeyedServiceRegistry(String prototypeBeanName) {
+        this.prototypeBeanName = requireNonNull(prototypeBeanName, "prototypeBeanName");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (prototypeBeanName == null) {
+            return;
+        }
+        if (!beanFactory.isPrototype(prototypeBeanName)) {
+            throw new BeanDefinitionValidationException("Bean [" + prototypeBeanName
+                    + "] used by keyed service registry must be prototype");
+        }
+        factory = key -> (S) beanFactory.getBean(prototypeBeanName, key);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets maximum number of instances. Least recently used instances beyond it are evicted.
+     * Zero or negative (default) means no limit.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets time in milliseconds after last access when instance is evicted. Zero or negative (default) means no limit.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * Sets interval in milliseconds between idle instance checks. Default is 1000.
+     */
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public long getStartTimeout() {
+        return startTimeout;
+    }
+
+    /**
+     * Sets maximum time in milliseconds {@link #get(Object)} waits for new instance to start.
+     * Zero or negative (default) means no limit.
+     */
+    public void setStartTimeout(long startTimeout) {
+        this.startTimeout = startTimeout;
+    }
+
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * Sets maximum drain time in milliseconds of evicted {@link Drainable} instance. Default is 0 (no limit).
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * Returns running instance for provided key. Instance is created and started if it is missing.
+     *
+     * @throws IllegalStateException if registry is not running or instance fails to start or does not start in time
+     */
+    public S get(K key) {
+        requireNonNull(key, "key");
+        checkRunning();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isStopped()) {
+            //Instance stopped on its own but its listener did not remove it yet. Replace it once
+            entries.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            Entry created = new Entry(key);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        S service = instance(entry);
+        entry.lastAccess = System.nanoTime();
+        if (maxSize > 0 && entries.size() > maxSize) {
+            LifecycleTimer.execute(this::evictOverflow);
+        }
+        if (state() != RUNNING) {
+            //Registry was stopped concurrently and may have missed this instance
+            Entry created = entry;
+            LifecycleTimer.execute(() -> retire(created));
+            checkRunning();
+        }
+        awaitRunning(entry.key, service);
+        return service;
+    }
+
+    /**
+     * @return snapshot of keys of live instances
+     */
+    public Set<K> getKeys() {
+        return Collections.unmodifiableSet(new HashSet<>(entries.keySet()));
+    }
+
+    /**
+     * @return number of live instances
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void checkRunning() {
+        State state = state();
+        if (state != RUNNING) {
+            throw new IllegalStateException("Can't get service from " + this + " in state " + state);
+        }
+    }
+
+    /**
+     * Creates and starts instance of entry once. Concurrent callers wait for it.
+     */
+    private S instance(Entry entry) {
+        entry.task.run();
+        try {
+            return entry.task.get();
+        } catch (ExecutionException e) {
+            entries.remove(entry.key, entry);
+            throw new IllegalStateException("Failed to create service for key [" + entry.key + "]", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for service for key [" + entry.key + "]", e);
+        }
+    }
+
+    private S create(Entry entry) {
+        Function<? super K, ? extends S> factory = this.factory;
+        if (factory == null) {
+            throw new IllegalStateException("Bean factory is not set for " + this);
+        }
+        S service = requireNonNull(factory.apply(entry.key), "service");
+        service.addListener(new InstanceListener(entry), LifecycleTimer::execute);
+        entry.service = service;
+        service.startAsync();
+        if (entry.retired) {
+            //Entry was evicted or registry was stopped while instance was created
+            LifecycleTimer.execute(() -> retire(entry));
+        }
+        return service;
+    }
+
+    private void awaitRunning(K key, S service) {
+        try {
+            if (startTimeout > 0) {
+                service.awaitRunning(startTimeout, TimeUnit.MILLISECONDS);
+            } else {
+                service.awaitRunning();
+            }
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Service for key [" + key + "] did not start within "
+                    + startTimeout + " ms");
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Service for key [" + key + "] failed to start", e);
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        LifecycleTimer.execute(() -> {
+            notifyStarted();
+            scheduleCheck();
+        });
+    }
+
+    @Override
+    protected void doStop() {
+        LifecycleTimer.execute(this::stopInstances);
+    }
+
+    //Methods below are executed on lifecycle timer thread only
+
+    private void stopInstances() {
+        if (pendingCheck != null) {
+            pendingCheck.cancel(false);
+            pendingCheck = null;
+        }
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            retire(entry);
+        }
+        stopped();
+    }
+
+    private void retire(Entry entry) {
+        entry.retired = true;
+        entries.remove(entry.key, entry);
+        Service service = entry.service;
+        if (service == null || entry.stopRequested) {
+            //Instance which is not created yet is retired by its creator
+            return;
+        }
+        entry.stopRequested = true;
+        if (TERMINAL_STATES.contains(service.state())) {
+            return;
+        }
+        retiring.add(entry);
+        if (service instanceof Drainable && service.state() == RUNNING) {
+            long timeout = drainTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(drainTimeout) : -1;
+            new ServiceDrain((Drainable) service, "for key [" + entry.key + "]", timeout, service::stopAsync).start();
+        } else {
+            service.stopAsync();
+        }
+    }
+
+    private void instanceStopped(Entry entry, Throwable failure) {
+        if (failure != null && !entry.retired) {
+            LOG.warn("Service for key [" + entry.key + "] of " + this + " failed. It is recreated on next access", failure);
+        }
+        entry.retired = true;
+        entry.stopRequested = true;
+        entries.remove(entry.key, entry);
+        retiring.remove(entry);
+        stopped();
+    }
+
+    private void stopped() {
+        if (state() == STOPPING && entries.isEmpty() && retiring.isEmpty()) {
+            notifyStopped();
+        }
+    }
+
+    private void evictOverflow() {
+        while (maxSize > 0 && entries.size() > maxSize) {
+            Entry eldest = null;
+            for (Entry entry : entries.values()) {
+                if (eldest == null || entry.lastAccess - eldest.lastAccess < 0) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Evicting least recently used service for key [" + eldest.key + "] of " + this);
+            }
+            retire(eldest);
+        }
+    }
+
+    private void scheduleCheck() {
+        if (idleTimeout > 0 && state() == RUNNING) {
+            pendingCheck = LifecycleTimer.schedule(this::evictIdle, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void evictIdle() {
+        pendingCheck = null;
+        if (state() != RUNNING) {
+            return;
+        }
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            Service service = entry.service;
+            if (now - entry.lastAccess >= idleNanos && service != null && service.state() == RUNNING) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Evicting idle service for key [" + entry.key + "] of " + this);
+                }
+                retire(entry);
+            }
+        }
+        scheduleCheck();
+    }
+
+    @Override
+    public String toString() {
+        return "Keyed service registry of " + entries.size() + " [" + state() + "]";
+    }
+
+    private class Entry {
+        private final K key;
+        private final FutureTask<S> task;
+        private volatile S service;
+        private volatile long lastAccess = System.nanoTime();
+        private volatile boolean retired;
+        //Accessed on lifecycle timer thread only
+        private boolean stopRequested;
+
+        private Entry(K key) {
+            this.key = key;
+            this.task = new FutureTask<>(() -> create(this));
+        }
+
+        private boolean isStopped() {
+            S service = this.service;
+            return service != null && service.state().compareTo(RUNNING) > 0;
+        }
+    }
+
+    private class InstanceListener extends Service.Listener {
+        private final Entry entry;
+
+        private InstanceListener(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void terminated(State from) {
+            instanceStopped(entry, null);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            instanceStopped(entry, failure);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static com.google.common.util.concurrent.Service.State.RUNNING;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates proxy implementing all interfaces of lazily started service.
+ * <p>
+ * First call of business method starts service with its {@link ServiceSmartLifecycle ServiceSmartLifecycle}
+ * and awaits until it is running (bounded by start timeout of adapter if set).
+ * Subsequent calls are routed to service directly after single volatile read.
+ * Methods of {@link Service} interface never start service.
+ * <p>
+ * Registered by {@link WithSmartLifecyclePostprocessor} under name of service bean for services
+ * with {@link StartMode#LAZY LAZY} start mode. Service itself is renamed with {@value #TARGET_NAME_PREFIX} prefix.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class LazyServiceProxyFactoryBean implements FactoryBean<Object>, BeanFactoryAware {
+    public static final String TARGET_NAME_PREFIX = "gusp.lazyTarget.";
+
+    private final Service target;
+    private final String lifecycleBeanName;
+    private final Object proxy;
+    private BeanFactory beanFactory;
+
+    public LazyServiceProxyFactoryBean(Service target, String lifecycleBeanName) {
+        this.target = requireNonNull(target, "target");
+        this.lifecycleBeanName = requireNonNull(lifecycleBeanName, "lifecycleBeanName");
+        ClassLoader classLoader = target.getClass().getClassLoader();
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(target.getClass(), classLoader);
+        this.proxy = Proxy.newProxyInstance(classLoader, interfaces, new LazyStartHandler());
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object getObject() {
+        return proxy;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return proxy.getClass();
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    private class LazyStartHandler implements InvocationHandler {
+        private volatile boolean started;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            if (!started && method.getDeclaringClass() != Service.class) {
+                awaitStarted();
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private synchronized void awaitStarted() {
+            if (started) {
+                return;
+            }
+            if (target.state() != RUNNING) {
+                ServiceSmartLifecycle lifecycle = beanFactory.getBean(lifecycleBeanName, ServiceSmartLifecycle.class);
+                lifecycle.start();
+                lifecycle.awaitRunning();
+            }
+            started = true;
+        }
+
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "Lazy proxy of " + target;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+/**
+ * Base class for coordinators that start and stop several {@link ServiceSmartLifecycle ServiceSmartLifecycle}
+ * adapters together instead of one after another.
+ * <p>
+ * Adapters are registered with {@link ServiceSmartLifecycle#setCoordinator(LifecycleCoordinator)}.
+ *
+ * @see PhaseStartCoordinator
+ * @see DependencyGraphCoordinator
+ */
+public abstract class LifecycleCoordinator {
+    LifecycleCoordinator() {
+    }
+
+    abstract void register(ServiceSmartLifecycle member);
+
+    abstract void unregister(ServiceSmartLifecycle member);
+
+    /**
+     * Starts service of provided member.
+     * Awaits until it transfers to running state unless asyncStart feature is enabled for member.
+     *
+     * @throws IllegalStateException if service can not be started or fails to start
+     */
+    abstract void start(ServiceSmartLifecycle member);
+
+    /**
+     * Initiates stop of provided member's service.
+     *
+     * @return false if coordinator does not control stop and member should stop its service on its own
+     */
+    boolean stopAsync(ServiceSmartLifecycle member) {
+        return false;
+    }
+
+    /**
+     * Notifies that provided member stopped waiting for its service to stop.
+     */
+    void stopTimedOut(ServiceSmartLifecycle member) {
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Shared daemon timer for lifecycle timeouts. Thread is created on first use.
+ * Scheduled tasks must be short as they are executed one after another.
+ * Service instances (e.g. prototype beans) are created on separate daemon threads
+ * with {@link #create(Supplier, BiConsumer)}, so slow factories do not delay timeouts.
+ */
+final class LifecycleTimer {
+    private LifecycleTimer() {
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return Holder.EXECUTOR.schedule(task, delay, unit);
+    }
+
+    static void execute(Runnable task) {
+        Holder.EXECUTOR.execute(task);
+    }
+
+    /**
+     * Obtains instance from factory on separate thread and passes it (or failure) to callback on timer thread.
+     */
+    static <T> void create(Supplier<? extends T> factory, BiConsumer<? super T, ? super Throwable> callback) {
+        CreatorHolder.EXECUTOR.execute(() -> {
+            T instance;
+            try {
+                instance = factory.get();
+            } catch (RuntimeException | Error e) {
+                execute(() -> callback.accept(null, e));
+                return;
+            }
+            execute(() -> callback.accept(instance, null));
+        });
+    }
+
+    private static class Holder {
+        private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "gusp-lifecycle-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    private static class CreatorHolder {
+        private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "gusp-instance-factory");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
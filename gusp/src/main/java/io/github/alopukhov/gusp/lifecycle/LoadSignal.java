@@ -0,0 +1,43 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Load of {@link ElasticReplicaSet} driving its scaling. Load is normalized: 1.0 means replicas are fully loaded.
+ * Implement it with lambda to supply custom metric.
+ *
+ * @see ElasticReplicaSet#setScaleUpThreshold(double)
+ * @see ElasticReplicaSet#setScaleDownThreshold(double)
+ */
+@FunctionalInterface
+public interface LoadSignal {
+    /**
+     * Called on shared lifecycle timer thread, so it must be fast and must not block.
+     *
+     * @param replicas current number of active replicas
+     * @return current load
+     */
+    double load(int replicas);
+
+    /**
+     * @param queue queue consumed by replicas
+     * @param targetDepth queue depth per replica considered as full load
+     * @return signal of queue depth per replica relative to target depth
+     */
+    static LoadSignal queueDepth(Collection<?> queue, int targetDepth) {
+        requireNonNull(queue, "queue");
+        return replicas -> queue.size() / ((double) Math.max(replicas, 1) * targetDepth);
+    }
+
+    /**
+     * @param executor executor used by replicas
+     * @return signal of active threads relative to maximum pool size
+     */
+    static LoadSignal utilization(ThreadPoolExecutor executor) {
+        requireNonNull(executor, "executor");
+        return replicas -> executor.getActiveCount() / (double) executor.getMaximumPoolSize();
+    }
+}
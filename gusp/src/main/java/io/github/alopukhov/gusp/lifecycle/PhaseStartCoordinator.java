@@ -0,0 +1,214 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.util.concurrent.Service.State.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Starts all {@link ServiceSmartLifecycle ServiceSmartLifecycle} members of a phase together.
+ * <p>
+ * Spring starts lifecycle beans of one phase one after another, so sync start of many services takes
+ * the sum of their start times. When first member of a phase is started coordinator issues
+ * {@code startAsync()} for every auto startup member of that phase and then awaits all of them at once.
+ * Start fails as soon as any awaited service fails or exceeds its start timeout.
+ * Members with asyncStart feature enabled are started but never awaited, even if one of them is started first.
+ * If {@link StartupProfile} is set members are started longest first according to it.
+ * <p>
+ * Members are registered with {@link ServiceSmartLifecycle#setCoordinator(LifecycleCoordinator)}.
+ * Enable it with {@link io.github.alopukhov.gusp.annotations.EnableGusp#parallelStart() @EnableGusp(parallelStart = true)}
+ * or {@link WithSmartLifecyclePostprocessor#setParallelStart(boolean)}.
+ *
+ * @see ServiceSmartLifecycle
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class PhaseStartCoordinator extends LifecycleCoordinator {
+    private final List<ServiceSmartLifecycle> members = new CopyOnWriteArrayList<>();
+    private StartupProfile startupProfile;
+
+    public StartupProfile getStartupProfile() {
+        return startupProfile;
+    }
+
+    /**
+     * Sets profile defining order of start within phase. Null (default) means declared order.
+     */
+    public void setStartupProfile(StartupProfile startupProfile) {
+        this.startupProfile = startupProfile;
+    }
+
+    @Override
+    void register(ServiceSmartLifecycle member) {
+        members.add(requireNonNull(member, "member"));
+    }
+
+    @Override
+    void unregister(ServiceSmartLifecycle member) {
+        members.remove(member);
+    }
+
+    /**
+     * Starts every auto startup member in the same phase as provided one.
+     * Provided member is started even if auto startup is disabled for it.
+     * Awaits until all started members that have asyncStart feature disabled transfer to running state.
+     * Otherwise spring would skip them as they are already running (starting).
+     *
+     * @throws IllegalStateException if any awaited service fails to start
+     */
+    @Override
+    void start(ServiceSmartLifecycle starting) {
+        awaitRunning(startAsync(starting));
+        starting.startService();
+    }
+
+    private synchronized List<ServiceSmartLifecycle> startAsync(ServiceSmartLifecycle starting) {
+        List<ServiceSmartLifecycle> awaited = new ArrayList<>();
+        List<ServiceSmartLifecycle> ordered = startupProfile == null ? members : startupProfile.order(members);
+        for (ServiceSmartLifecycle member : ordered) {
+            if (member.getPhase() != starting.getPhase() || (member != starting && !member.isAutoStartup())) {
+                continue;
+            }
+            Service service = member.getService();
+            State state = service.state();
+            if (state == NEW) {
+                service.startAsync();
+                state = STARTING;
+            }
+            if (state == STARTING && !member.isAsyncStart()) {
+                awaited.add(member);
+            }
+        }
+        return awaited;
+    }
+
+    private static void awaitRunning(List<ServiceSmartLifecycle> awaited) {
+        StartBarrier barrier = new StartBarrier(awaited);
+        for (ServiceSmartLifecycle member : awaited) {
+            Service service = member.getService();
+            StartBarrierListener listener = new StartBarrierListener(barrier, member);
+            service.addListener(listener, Runnable::run);
+            State state = service.state();
+            if (state != NEW && state != STARTING) {
+                //Service left starting state before listener was added.
+                //Listener is responsible for arriving only once
+                listener.arrive(state);
+            }
+        }
+        barrier.await();
+    }
+
+    private static class StartBarrier {
+        private final long startedAt = System.nanoTime();
+        private final Set<ServiceSmartLifecycle> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        private ServiceSmartLifecycle failed;
+
+        private StartBarrier(List<ServiceSmartLifecycle> awaited) {
+            pending.addAll(awaited);
+        }
+
+        private synchronized void arrived(ServiceSmartLifecycle member) {
+            pending.remove(member);
+            notifyAll();
+        }
+
+        private synchronized void failed(ServiceSmartLifecycle member) {
+            if (failed == null) {
+                failed = member;
+            }
+            notifyAll();
+        }
+
+        private synchronized void await() {
+            boolean interrupted = false;
+            try {
+                while (!pending.isEmpty() && failed == null) {
+                    ServiceSmartLifecycle first = firstToTimeOut();
+                    try {
+                        if (first == null) {
+                            wait();
+                            continue;
+                        }
+                        long remaining = deadline(first) - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw first.startTimedOut();
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failed != null) {
+                Service service = failed.getService();
+                State state = service.state();
+                throw new IllegalStateException("Expected the service " + failed.describe() + " to be RUNNING, but it was "
+                        + state, state == FAILED ? service.failureCause() : null);
+            }
+        }
+
+        private ServiceSmartLifecycle firstToTimeOut() {
+            ServiceSmartLifecycle first = null;
+            for (ServiceSmartLifecycle member : pending) {
+                if (member.getStartTimeout() > 0 && (first == null || deadline(member) - deadline(first) < 0)) {
+                    first = member;
+                }
+            }
+            return first;
+        }
+
+        private long deadline(ServiceSmartLifecycle member) {
+            return startedAt + TimeUnit.MILLISECONDS.toNanos(member.getStartTimeout());
+        }
+    }
+
+    private static class StartBarrierListener extends Service.Listener {
+        private final AtomicBoolean arrived = new AtomicBoolean();
+        private final StartBarrier barrier;
+        private final ServiceSmartLifecycle member;
+
+        private StartBarrierListener(StartBarrier barrier, ServiceSmartLifecycle member) {
+            this.barrier = barrier;
+            this.member = member;
+        }
+
+        @Override
+        public void running() {
+            arrive(RUNNING);
+        }
+
+        @Override
+        public void stopping(State from) {
+            arrive(STOPPING);
+        }
+
+        @Override
+        public void terminated(State from) {
+            arrive(TERMINATED);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            arrive(FAILED);
+        }
+
+        private void arrive(State state) {
+            if (arrived.compareAndSet(false, true)) {
+                if (state == RUNNING) {
+                    barrier.arrived(member);
+                } else {
+                    barrier.failed(member);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link Drainable} service through its drain on {@link LifecycleTimer}: stops intake,
+ * polls remaining work until it is drained or deadline passes and escalates in the latter case.
+ * Runs provided continuation once drain is finished in any way.
+ */
+final class ServiceDrain {
+    static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final Log LOG = LogFactory.getLog(ServiceDrain.class);
+
+    private final Drainable drainable;
+    private final String description;
+    private final long timeoutNanos;
+    private final Runnable then;
+    private final long startedAt = System.nanoTime();
+    private long lastRemaining = Long.MIN_VALUE;
+
+    /**
+     * @param timeoutNanos drain timeout, negative means no limit
+     */
+    ServiceDrain(Drainable drainable, String description, long timeoutNanos, Runnable then) {
+        this.drainable = drainable;
+        this.description = description;
+        this.timeoutNanos = timeoutNanos;
+        this.then = then;
+    }
+
+    void start() {
+        try {
+            drainable.stopIntake();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to stop intake of service " + description, e);
+        }
+        poll();
+    }
+
+    private void poll() {
+        long remaining;
+        try {
+            remaining = drainable.remainingWork();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to get remaining work of service " + description + ". Stop draining it", e);
+            then.run();
+            return;
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        if (remaining <= 0) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Service " + description + " drained in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+            }
+            then.run();
+            return;
+        }
+        if (timeoutNanos >= 0 && elapsed >= timeoutNanos) {
+            LOG.warn("Service " + description + " did not drain within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                    + " ms, " + remaining + " remaining. Escalating");
+            try {
+                drainable.escalate();
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to escalate drain of service " + description, e);
+            }
+            then.run();
+            return;
+        }
+        if (remaining != lastRemaining && LOG.isDebugEnabled()) {
+            LOG.debug("Draining service " + description + ", " + remaining + " remaining");
+        }
+        lastRemaining = remaining;
+        long delay = timeoutNanos < 0 ? POLL_INTERVAL_NANOS : Math.min(POLL_INTERVAL_NANOS, timeoutNanos - elapsed);
+        LifecycleTimer.schedule(this::poll, delay, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+
+import static com.google.common.util.concurrent.Service.State.*;
+
+/**
+ * Emits {@link ServiceStateEvent flight recorder events} for state transitions of service managed by adapter.
+ * Event of a state is started when service enters it and committed when service leaves it.
+ * Time spent in NEW state is not recorded.
+ * <p>
+ * Added to service by {@link ServiceSmartLifecycle ServiceSmartLifecycle} on creation only if flight recorder
+ * is available. Event class is referenced by nested listener only, so it is never loaded otherwise.
+ */
+@SuppressWarnings("UnstableApiUsage")
+final class ServiceEventRecorder {
+    private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private ServiceEventRecorder() {
+    }
+
+    static void addTo(ServiceSmartLifecycle lifecycle, Service service) {
+        if (AVAILABLE) {
+            service.addListener(new Recorder(lifecycle), Runnable::run);
+        }
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static class Recorder extends Service.Listener {
+        private final ServiceSmartLifecycle lifecycle;
+        private ServiceStateEvent pending;
+
+        private Recorder(ServiceSmartLifecycle lifecycle) {
+            this.lifecycle = lifecycle;
+        }
+
+        @Override
+        public void starting() {
+            transition(STARTING, null);
+        }
+
+        @Override
+        public void running() {
+            transition(RUNNING, null);
+        }
+
+        @Override
+        public void stopping(State from) {
+            transition(STOPPING, null);
+        }
+
+        @Override
+        public void terminated(State from) {
+            transition(TERMINATED, null);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            transition(FAILED, failure);
+        }
+
+        private synchronized void transition(State to, Throwable failure) {
+            ServiceStateEvent event = pending;
+            if (to != TERMINATED && to != FAILED) {
+                pending = new ServiceStateEvent();
+                pending.state = to.name();
+                pending.begin();
+            } else {
+                pending = null;
+            }
+            if (event == null) {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.beanName = lifecycle.getServiceBeanName();
+                event.serviceClass = lifecycle.getService().getClass();
+                event.phase = lifecycle.getPhase();
+                event.nextState = to.name();
+                event.failure = failure == null ? null : failure.toString();
+                event.commit();
+            }
+        }
+    }
+}
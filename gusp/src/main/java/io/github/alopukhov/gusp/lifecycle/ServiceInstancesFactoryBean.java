@@ -0,0 +1,85 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.ObjectFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates independent instances of replicated prototype service. Instances implementing {@link InstanceIndexAware}
+ * receive their index.
+ * <p>
+ * Number of instances is given by spec: fixed positive count (e.g. {@code "4"}), {@code "cores"} for number of
+ * available processors or {@code "cores*k"} for k instances per processor.
+ * <p>
+ * Registered by {@link WithSmartLifecyclePostprocessor} under name of service bean with {@value #INSTANCES_NAME_PREFIX}
+ * prefix. All instances are served by single {@link ServiceSmartLifecycle ServiceSmartLifecycle} adapter.
+ *
+ * @see io.github.alopukhov.gusp.annotations.WithSmartLifecycle#instances()
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ServiceInstancesFactoryBean implements FactoryBean<Service[]> {
+    public static final String INSTANCES_NAME_PREFIX = "gusp.instances.";
+    private static final String CORES = "cores";
+
+    private final ObjectFactory<? extends Service> factory;
+    private final int instances;
+
+    public ServiceInstancesFactoryBean(ObjectFactory<? extends Service> factory, String instances) {
+        this.factory = requireNonNull(factory, "factory");
+        this.instances = parseInstances(instances);
+    }
+
+    /**
+     * @return number of instances described by spec
+     * @throws IllegalArgumentException if spec is malformed or describes non positive number of instances
+     */
+    public static int parseInstances(String spec) {
+        String normalized = requireNonNull(spec, "spec").replace(" ", "");
+        int instances;
+        try {
+            if (normalized.equals(CORES)) {
+                instances = Runtime.getRuntime().availableProcessors();
+            } else if (normalized.startsWith(CORES + "*")) {
+                instances = Math.multiplyExact(Runtime.getRuntime().availableProcessors(),
+                        Integer.parseInt(normalized.substring(CORES.length() + 1)));
+            } else {
+                instances = Integer.parseInt(normalized);
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Malformed instances spec [" + spec + "]", e);
+        }
+        if (instances <= 0) {
+            throw new IllegalArgumentException("Instances spec [" + spec + "] gives non positive number of instances");
+        }
+        return instances;
+    }
+
+    public int getInstances() {
+        return instances;
+    }
+
+    @Override
+    public Service[] getObject() {
+        Service[] services = new Service[instances];
+        for (int i = 0; i < instances; i++) {
+            Service service = factory.getObject();
+            if (service instanceof InstanceIndexAware) {
+                ((InstanceIndexAware) service).setInstanceIndex(i, instances);
+            }
+            services[i] = service;
+        }
+        return services;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return Service[].class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
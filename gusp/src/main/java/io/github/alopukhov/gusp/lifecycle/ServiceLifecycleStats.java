@@ -0,0 +1,126 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Timings of service state transitions observed by {@link ServiceSmartLifecycle ServiceSmartLifecycle}.
+ * <p>
+ * Collected by listener added to service when adapter is created so transitions that happen before
+ * anything else observes service (e.g. failures during start) are recorded too.
+ * Transitions made before adapter creation are not recorded.
+ * All durations are in nanoseconds. Negative value means that duration is not known yet.
+ *
+ * @see ServiceSmartLifecycle#getStats()
+ */
+@SuppressWarnings("UnstableApiUsage")
+public final class ServiceLifecycleStats {
+    private static final long UNKNOWN = -1;
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    private final Service service;
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile long startingAt = NOT_SET;
+    private volatile long runningAt = NOT_SET;
+    private volatile long stoppingAt = NOT_SET;
+    private volatile long terminatedAt = NOT_SET;
+    private volatile long failedAt = NOT_SET;
+
+    ServiceLifecycleStats(Service service) {
+        this.service = requireNonNull(service, "service");
+    }
+
+    Service.Listener listener() {
+        return new Recorder();
+    }
+
+    public Service getService() {
+        return service;
+    }
+
+    /**
+     * @return duration of transition from STARTING to RUNNING state
+     */
+    public long getStartDuration() {
+        return between(startingAt, runningAt);
+    }
+
+    /**
+     * @return duration of transition from STOPPING to TERMINATED or FAILED state
+     */
+    public long getStopDuration() {
+        return between(stoppingAt, stoppedAt());
+    }
+
+    /**
+     * @return time spent in STARTING state including ongoing stay
+     */
+    public long getTimeInStarting() {
+        long startingAt = this.startingAt;
+        if (startingAt == NOT_SET) {
+            return UNKNOWN;
+        }
+        long leftAt = runningAt != NOT_SET ? runningAt : stoppingAt != NOT_SET ? stoppingAt : stoppedAt();
+        return leftAt != NOT_SET ? leftAt - startingAt : System.nanoTime() - startingAt;
+    }
+
+    /**
+     * @return time spent in STOPPING state including ongoing stay
+     */
+    public long getTimeInStopping() {
+        long stoppingAt = this.stoppingAt;
+        if (stoppingAt == NOT_SET) {
+            return UNKNOWN;
+        }
+        long stoppedAt = stoppedAt();
+        return stoppedAt != NOT_SET ? stoppedAt - stoppingAt : System.nanoTime() - stoppingAt;
+    }
+
+    /**
+     * @return number of transitions to FAILED state
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    private long stoppedAt() {
+        long terminatedAt = this.terminatedAt;
+        return terminatedAt != NOT_SET ? terminatedAt : failedAt;
+    }
+
+    private static long between(long from, long to) {
+        return from == NOT_SET || to == NOT_SET ? UNKNOWN : to - from;
+    }
+
+    private class Recorder extends Service.Listener {
+        @Override
+        public void starting() {
+            startingAt = System.nanoTime();
+        }
+
+        @Override
+        public void running() {
+            runningAt = System.nanoTime();
+        }
+
+        @Override
+        public void stopping(State from) {
+            stoppingAt = System.nanoTime();
+        }
+
+        @Override
+        public void terminated(State from) {
+            terminatedAt = System.nanoTime();
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            failedAt = System.nanoTime();
+            failures.incrementAndGet();
+        }
+    }
+}
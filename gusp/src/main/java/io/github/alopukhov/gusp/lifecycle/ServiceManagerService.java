@@ -0,0 +1,107 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ServiceManager;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Presents {@link ServiceManager} (or group of services) as single service, so all services of manager are started
+ * and stopped concurrently by one {@link ServiceSmartLifecycle ServiceSmartLifecycle}.
+ * <p>
+ * Service is running once manager is healthy and terminated once manager is stopped.
+ * If any service of manager fails remaining services are stopped and this service fails with same cause.
+ *
+ * @see ServiceSmartLifecycle#forManager(ServiceManager)
+ * @see ServiceSmartLifecycle#forGroup(Iterable)
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ServiceManagerService extends AbstractService {
+    private final ServiceManager manager;
+
+    public ServiceManagerService(ServiceManager manager) {
+        this.manager = requireNonNull(manager, "manager");
+        manager.addListener(new ManagerListener(), Runnable::run);
+    }
+
+    /**
+     * Creates service managing group of provided services.
+     */
+    public ServiceManagerService(Iterable<? extends Service> services) {
+        this(new ServiceManager(requireNonNull(services, "services")));
+    }
+
+    public ServiceManager getManager() {
+        return manager;
+    }
+
+    /**
+     * @return state of every service of manager
+     */
+    public Map<Service, State> getMemberStates() {
+        Map<Service, State> states = new IdentityHashMap<>();
+        for (Map.Entry<State, Service> entry : manager.servicesByState().entries()) {
+            states.put(entry.getValue(), entry.getKey());
+        }
+        return states;
+    }
+
+    /**
+     * @return startup time in milliseconds of every service of manager that finished starting
+     * @see ServiceManager#startupTimes()
+     */
+    public Map<Service, Long> getStartupTimes() {
+        return manager.startupTimes();
+    }
+
+    @Override
+    protected void doStart() {
+        manager.startAsync();
+    }
+
+    @Override
+    protected void doStop() {
+        manager.stopAsync();
+    }
+
+    @Override
+    public String toString() {
+        return manager + " [" + state() + "]";
+    }
+
+    private class ManagerListener extends ServiceManager.Listener {
+        @Override
+        public void healthy() {
+            State state = state();
+            //Healthy happens only once and before doStop, so STOPPING means that stop was requested during start
+            if (state == State.STARTING || state == State.STOPPING) {
+                notifyStarted();
+            }
+        }
+
+        @Override
+        public void stopped() {
+            State state = state();
+            if (state == State.STARTING) {
+                //All services terminated before manager became healthy, e.g. stop was requested during start
+                notifyFailed(new IllegalStateException("Services of " + manager + " stopped before becoming healthy"));
+            } else if (state == State.RUNNING || state == State.STOPPING) {
+                notifyStopped();
+            }
+        }
+
+        @Override
+        public void failure(Service service) {
+            State state = state();
+            if (state != State.TERMINATED && state != State.FAILED) {
+                notifyFailed(service.failureCause());
+            }
+            //Stopping remaining services may notify stopped() synchronously, so it goes after failure notification
+            manager.stopAsync();
+        }
+    }
+}
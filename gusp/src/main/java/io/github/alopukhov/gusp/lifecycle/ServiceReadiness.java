@@ -0,0 +1,48 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Aggregate readiness of services. Intended to back readiness probes.
+ * <p>
+ * Ready when every auto startup {@link ServiceSmartLifecycle ServiceSmartLifecycle} member is
+ * {@link ServiceSmartLifecycle#isReady() ready}, i.e. its service is running and finished its {@link WarmUp warm-up}.
+ * Members are registered with {@link ServiceSmartLifecycle#setReadiness(ServiceReadiness)}.
+ */
+public class ServiceReadiness {
+    private final List<ServiceSmartLifecycle> members = new CopyOnWriteArrayList<>();
+
+    void register(ServiceSmartLifecycle member) {
+        members.add(requireNonNull(member, "member"));
+    }
+
+    void unregister(ServiceSmartLifecycle member) {
+        members.remove(member);
+    }
+
+    public boolean isReady() {
+        for (ServiceSmartLifecycle member : members) {
+            if (member.isAutoStartup() && !member.isReady()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return auto startup members that are not ready yet
+     */
+    public List<ServiceSmartLifecycle> getNotReady() {
+        List<ServiceSmartLifecycle> notReady = new ArrayList<>();
+        for (ServiceSmartLifecycle member : members) {
+            if (member.isAutoStartup() && !member.isReady()) {
+                notReady.add(member);
+            }
+        }
+        return notReady;
+    }
+}
@@ -1,13 +1,31 @@
 package io.github.alopukhov.gusp.lifecycle;
 
 import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ServiceManager;
 import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.scheduling.SharedScheduler;
+import io.github.alopukhov.gusp.scheduling.SharedSchedulerAware;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.SmartLifecycle;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static com.google.common.util.concurrent.Service.State.*;
 import static java.util.Objects.requireNonNull;
@@ -18,13 +36,37 @@ import static java.util.Objects.requireNonNull;
  * Create it manually or annotate bean with {@link io.github.alopukhov.gusp.annotations.WithSmartLifecycle}.
  *
  * <p>AutoStartup is enabled by default.
- * <p>Offers two features:
+ * <p>Offers following features:
  * <ul>
  *     <li>asyncStart - if enabled start method will not wait until service transfers to running state</li>
  *     <li>stopOnDestroy - if enabled {@link #stop()} will be called in {@link #destroy()} call.
  *     Default is disabled as this should be set with care.
  *     </li>
+ *     <li>startTimeout/stopTimeout - bound waiting for service to start or stop.
+ *     Timeouts are logged. Start timeout fails start while stop timeout just stops waiting.
+ *     </li>
+ *     <li>shutdownBudget - bounds waiting for service to stop with {@link ShutdownBudget} shared with other adapters</li>
+ *     <li>sharedScheduler - passes {@link SharedScheduler} to service so it does not need thread of its own</li>
+ *     <li>startMode - {@link StartMode#LAZY LAZY} services are not started automatically,
+ *     they are started on first use by {@link LazyServiceProxyFactoryBean} proxy.
+ *     {@link StartMode#DEFERRED DEFERRED} services are started in background after context refresh
+ *     by {@link DeferredStarter} in order of their priority</li>
+ *     <li>warm-up - if service implements {@link WarmUp} it is warmed up in separate thread once running.
+ *     Service is {@link #isReady() ready} when warm-up is finished</li>
+ *     <li>drain - if service implements {@link Drainable} it stops intake and drains in-flight work before it is stopped.
+ *     Drain is bounded by drainTimeout and shutdownBudget, remaining work is escalated once it is exceeded.
+ *     Stop timeout includes drain</li>
+ *     <li>stallWatchdog - reports service stuck in STARTING or STOPPING state with stack traces of its threads</li>
  * </ul>
+ * Guava {@link ServiceManager} or group of services ({@code Iterable} or array) may be adapted as well
+ * with {@link #forManager(ServiceManager)} and {@link #forGroup(Iterable)}: all services are started and stopped concurrently.
+ * <p>
+ * Start and stop may be delegated to {@link LifecycleCoordinator} so several services are handled together.
+ * <p>
+ * {@link #startAsync()} and {@link #stopAsync()} start and stop service without blocking caller and return
+ * {@link CompletableFuture} completed by service listener.
+ * <p>
+ * Service state is cached by listener, so {@link #isRunning()} and {@link #getState()} do not lock service monitor.
  *
  * This class is not thread safe in terms of setting properties.
  *
@@ -36,40 +78,170 @@ import static java.util.Objects.requireNonNull;
 public class ServiceSmartLifecycle implements SmartLifecycle, DisposableBean {
     private static final Set<State> RUNNING_STATES = EnumSet.of(STARTING, RUNNING, STOPPING);
     private static final Set<State> TERMINAL_STATES = EnumSet.of(TERMINATED, FAILED);
+    private static final Log LOG = LogFactory.getLog(ServiceSmartLifecycle.class);
 
     private final Service service;
+    private final ServiceLifecycleStats stats;
+    private final AtomicReference<State> state = new AtomicReference<>(NEW);
 
     private boolean autoStartup = true;
+    private StartMode startMode = StartMode.EAGER;
     private boolean asyncStart;
     private boolean stopOnDestroy;
     private int phase;
+    private long startTimeout;
+    private long stopTimeout;
+    private ShutdownBudget shutdownBudget;
+    private String serviceBeanName;
+    private String[] after = new String[0];
+    private LifecycleCoordinator coordinator;
+    private SharedScheduler sharedScheduler;
+    private int warmUpIterations = 1;
+    private long warmUpTimeout;
+    private volatile boolean warmedUp;
+    private ServiceReadiness readiness;
+    private ServiceStateRegistry stateRegistry;
+    private StallWatchdog stallWatchdog;
+    private int priority;
+    private DeferredStarter deferredStarter;
+    private StartupProfile startupProfile;
+    private long drainTimeout;
+    private final AtomicBoolean drainStarted = new AtomicBoolean();
+    private final Set<Object> listenerOwners = Collections.newSetFromMap(new IdentityHashMap<>());
 
     public ServiceSmartLifecycle(Service service) {
         this.service = requireNonNull(service, "service");
+        this.stats = new ServiceLifecycleStats(service);
+        service.addListener(new StateTracker(), Runnable::run);
+        service.addListener(stats.listener(), Runnable::run);
+        ServiceEventRecorder.addTo(this, service);
+        updateState(service.state());
+        if (service instanceof WarmUp) {
+            service.addListener(new WarmUpStarter(), Runnable::run);
+        }
+    }
+
+    /**
+     * Creates adapter that starts and stops all services of provided manager together.
+     *
+     * @see ServiceManagerService
+     */
+    public static ServiceSmartLifecycle forManager(ServiceManager manager) {
+        return new ServiceSmartLifecycle(new ServiceManagerService(manager));
+    }
+
+    /**
+     * Creates adapter that starts and stops group of services together.
+     *
+     * @see ServiceManagerService
+     */
+    public static ServiceSmartLifecycle forGroup(Iterable<? extends Service> services) {
+        return new ServiceSmartLifecycle(new ServiceManagerService(services));
+    }
+
+    /**
+     * Creates adapter that starts and stops group of services together.
+     *
+     * @see ServiceManagerService
+     */
+    public static ServiceSmartLifecycle forGroup(Service[] services) {
+        return forGroup(Arrays.asList(requireNonNull(services, "services")));
+    }
+
+    /**
+     * Creates adapter of annotated bean: service, {@link ServiceManager} or group of services.
+     * Used as factory method of adapter bean definitions since bean type is not known when they are registered.
+     */
+    @SuppressWarnings("unchecked")
+    static ServiceSmartLifecycle forBean(Object bean) {
+        if (bean instanceof ServiceManager) {
+            return forManager((ServiceManager) bean);
+        }
+        if (bean instanceof Service[]) {
+            return forGroup((Service[]) bean);
+        }
+        if (bean instanceof Iterable && !(bean instanceof Service)) {
+            return forGroup((Iterable<? extends Service>) bean);
+        }
+        return new ServiceSmartLifecycle((Service) requireNonNull(bean, "service"));
     }
 
     public Service getService() {
         return service;
     }
 
+    /**
+     * @return timings of service state transitions observed since this adapter creation
+     */
+    public ServiceLifecycleStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns states of every service of {@link ServiceManager} (or group) or of adapted service itself.
+     * Aggregate state is {@link #getState()}.
+     *
+     * @return state by service
+     */
+    public Map<Service, State> getMemberStates() {
+        if (service instanceof ServiceManagerService) {
+            return ((ServiceManagerService) service).getMemberStates();
+        }
+        return Collections.singletonMap(service, state.get());
+    }
+
+    /**
+     * Returns startup times of every service of {@link ServiceManager} (or group) or of adapted service itself.
+     * Only services that finished starting are included.
+     *
+     * @return startup time in milliseconds by service
+     */
+    public Map<Service, Long> getStartupTimes() {
+        if (service instanceof ServiceManagerService) {
+            return ((ServiceManagerService) service).getStartupTimes();
+        }
+        long startDuration = stats.getStartDuration();
+        return startDuration < 0 ? Collections.<Service, Long>emptyMap()
+                : Collections.singletonMap(service, TimeUnit.NANOSECONDS.toMillis(startDuration));
+    }
+
+    /**
+     * @return true if autoStartup is enabled and start mode is {@link StartMode#EAGER EAGER}
+     */
     @Override
     public boolean isAutoStartup() {
-        return autoStartup;
+        return autoStartup && startMode == StartMode.EAGER;
     }
 
     public void setAutoStartup(boolean autoStartup) {
         this.autoStartup = autoStartup;
     }
 
+    /**
+     * @return true if autoStartup is enabled and start mode is {@link StartMode#DEFERRED DEFERRED}
+     */
+    boolean isAutoStartupDeferred() {
+        return autoStartup && startMode == StartMode.DEFERRED;
+    }
+
     /**
      * Starts provided service.
      * If asyncStart feature is disabled awaits until service transfers to running state.
+     * If coordinator is set start is delegated to it.
      *
      * @throws IllegalStateException if service not in NEW/STARTING/RUNNING state or
      *                               awaitRunning throws Exception.
      */
     @Override
     public void start() {
+        if (coordinator != null) {
+            coordinator.start(this);
+        } else {
+            startService();
+        }
+    }
+
+    void startService() {
         final State state = service.state();
         switch (state) {
             case NEW:
@@ -82,8 +254,70 @@ public class ServiceSmartLifecycle implements SmartLifecycle, DisposableBean {
                 throw new IllegalStateException("Can't start service in state " + state);
         }
         if (!asyncStart) {
+            awaitRunning();
+        }
+    }
+
+    void awaitRunning() {
+        if (startTimeout <= 0) {
             service.awaitRunning();
+        } else {
+            try {
+                service.awaitRunning(startTimeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw startTimedOut();
+            }
         }
+        //Listeners are executed after await returns, so cached state may be still behind
+        updateState(RUNNING);
+    }
+
+    /**
+     * Logs start timeout.
+     *
+     * @return exception to be thrown by start method
+     */
+    IllegalStateException startTimedOut() {
+        String message = "Service " + describe() + " did not start within " + startTimeout + " ms";
+        LOG.warn(message);
+        return new IllegalStateException(message);
+    }
+
+    /**
+     * Initiates start of service without blocking caller. Neither coordinator nor asyncStart are taken into account.
+     *
+     * @return future completed with RUNNING once service is running. Future is completed exceptionally with
+     * {@link IllegalStateException} if service fails, stops before it is running or does not start within start timeout
+     */
+    public CompletableFuture<State> startAsync() {
+        CompletableFuture<State> future = stateFuture(RUNNING);
+        if (service.state() == NEW) {
+            try {
+                service.startAsync();
+            } catch (IllegalStateException e) {
+                //Service was started concurrently, future is completed by listener
+            }
+        }
+        if (startTimeout > 0 && !future.isDone()) {
+            ScheduledFuture<?> timeout = LifecycleTimer.schedule(() -> {
+                if (!future.isDone()) {
+                    future.completeExceptionally(startTimedOut());
+                }
+            }, startTimeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((state, failure) -> timeout.cancel(false));
+        }
+        return future;
+    }
+
+    public StartMode getStartMode() {
+        return startMode;
+    }
+
+    /**
+     * Sets start mode. Default is {@link StartMode#EAGER EAGER}.
+     */
+    public void setStartMode(StartMode startMode) {
+        this.startMode = requireNonNull(startMode, "startMode");
     }
 
     public boolean isAsyncStart() {
@@ -94,30 +328,433 @@ public class ServiceSmartLifecycle implements SmartLifecycle, DisposableBean {
         this.asyncStart = asyncStart;
     }
 
+    public long getStartTimeout() {
+        return startTimeout;
+    }
+
+    /**
+     * Sets maximum time in milliseconds to wait for service to start. Zero or negative (default) means no limit.
+     */
+    public void setStartTimeout(long startTimeout) {
+        this.startTimeout = startTimeout;
+    }
+
+    public long getStopTimeout() {
+        return stopTimeout;
+    }
+
+    /**
+     * Sets maximum time in milliseconds to wait for service to stop. Zero or negative (default) means no limit.
+     */
+    public void setStopTimeout(long stopTimeout) {
+        this.stopTimeout = stopTimeout;
+    }
+
+    public ShutdownBudget getShutdownBudget() {
+        return shutdownBudget;
+    }
+
+    /**
+     * Sets budget that additionally bounds waiting for service to stop. Null (default) means no budget.
+     */
+    public void setShutdownBudget(ShutdownBudget shutdownBudget) {
+        this.shutdownBudget = shutdownBudget;
+    }
+
+    public String getServiceBeanName() {
+        return serviceBeanName;
+    }
+
+    /**
+     * Sets name of service bean. Used by {@link DependencyGraphCoordinator} to resolve service dependencies.
+     */
+    public void setServiceBeanName(String serviceBeanName) {
+        this.serviceBeanName = serviceBeanName;
+    }
+
+    public String[] getAfter() {
+        return after.clone();
+    }
+
+    /**
+     * Sets names of service beans which must be running before this service is started.
+     * Only {@link DependencyGraphCoordinator} takes them into account.
+     */
+    public void setAfter(String... after) {
+        this.after = after.clone();
+    }
+
+    public LifecycleCoordinator getCoordinator() {
+        return coordinator;
+    }
+
+    /**
+     * Sets coordinator responsible for starting and stopping this service together with other services.
+     * Null (default) means service is started and stopped on its own.
+     */
+    public void setCoordinator(LifecycleCoordinator coordinator) {
+        if (this.coordinator != null) {
+            this.coordinator.unregister(this);
+        }
+        this.coordinator = coordinator;
+        if (coordinator != null) {
+            coordinator.register(this);
+        }
+    }
+
+    public SharedScheduler getSharedScheduler() {
+        return sharedScheduler;
+    }
+
+    /**
+     * Passes shared scheduler to service so its tasks are executed by shared scheduler instead of its own thread.
+     *
+     * @throws IllegalStateException if service does not implement {@link SharedSchedulerAware}
+     */
+    public void setSharedScheduler(SharedScheduler sharedScheduler) {
+        if (!(service instanceof SharedSchedulerAware)) {
+            throw new IllegalStateException("Service " + service + " can not use shared scheduler as it does not implement "
+                    + SharedSchedulerAware.class.getSimpleName());
+        }
+        ((SharedSchedulerAware) service).setSharedScheduler(sharedScheduler);
+        this.sharedScheduler = sharedScheduler;
+    }
+
+    public int getWarmUpIterations() {
+        return warmUpIterations;
+    }
+
+    /**
+     * Sets maximum number of {@link WarmUp#warmUp()} calls. Default is 1.
+     * Zero or negative means no limit, so warm-up lasts until warm-up timeout elapses
+     * (or is called once if timeout is not set either).
+     */
+    public void setWarmUpIterations(int warmUpIterations) {
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    public long getWarmUpTimeout() {
+        return warmUpTimeout;
+    }
+
+    /**
+     * Sets time in milliseconds after which no more warm-up iterations are started. Default is 0 (no limit).
+     */
+    public void setWarmUpTimeout(long warmUpTimeout) {
+        this.warmUpTimeout = warmUpTimeout;
+    }
+
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * Sets maximum time in milliseconds to drain {@link Drainable} service before escalation. Default is 0 (no limit).
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public ServiceReadiness getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Sets aggregate readiness this adapter contributes to.
+     */
+    public void setReadiness(ServiceReadiness readiness) {
+        if (this.readiness != null) {
+            this.readiness.unregister(this);
+        }
+        this.readiness = readiness;
+        if (readiness != null) {
+            readiness.register(this);
+        }
+    }
+
+    public ServiceStateRegistry getStateRegistry() {
+        return stateRegistry;
+    }
+
+    /**
+     * Sets context wide registry this adapter reports its cached state to.
+     */
+    public void setStateRegistry(ServiceStateRegistry stateRegistry) {
+        if (this.stateRegistry != null) {
+            this.stateRegistry.unregister(this);
+        }
+        this.stateRegistry = stateRegistry;
+        if (stateRegistry != null) {
+            stateRegistry.register(this);
+        }
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets priority of {@link StartMode#DEFERRED DEFERRED} service. Services with higher priority are started first.
+     * Default is 0.
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public DeferredStarter getDeferredStarter() {
+        return deferredStarter;
+    }
+
+    /**
+     * Sets starter responsible for start of {@link StartMode#DEFERRED DEFERRED} service.
+     */
+    public void setDeferredStarter(DeferredStarter deferredStarter) {
+        if (this.deferredStarter != null) {
+            this.deferredStarter.unregister(this);
+        }
+        this.deferredStarter = deferredStarter;
+        if (deferredStarter != null) {
+            deferredStarter.register(this);
+        }
+    }
+
+    public StartupProfile getStartupProfile() {
+        return startupProfile;
+    }
+
+    /**
+     * Sets profile this adapter records observed start duration of service to. Null (default) means no profile.
+     * Service bean name must be set to record start duration.
+     */
+    public void setStartupProfile(StartupProfile startupProfile) {
+        this.startupProfile = startupProfile;
+        if (startupProfile != null) {
+            addListenerOnce(startupProfile, () -> startupProfile.recorder(this));
+        }
+    }
+
+    public StallWatchdog getStallWatchdog() {
+        return stallWatchdog;
+    }
+
+    /**
+     * Sets watchdog reporting service stuck in STARTING or STOPPING state. Null (default) means no watchdog.
+     * Must be set before service is started.
+     */
+    public void setStallWatchdog(StallWatchdog stallWatchdog) {
+        this.stallWatchdog = stallWatchdog;
+        if (stallWatchdog != null) {
+            addListenerOnce(stallWatchdog, () -> stallWatchdog.watch(this));
+        }
+    }
+
+    /**
+     * Guava listeners can't be removed, so listener of each owner is added once
+     * and checks whether its owner is still set on this adapter.
+     */
+    private synchronized void addListenerOnce(Object owner, Supplier<Service.Listener> listener) {
+        if (listenerOwners.add(owner)) {
+            service.addListener(listener.get(), Runnable::run);
+        }
+    }
+
+    /**
+     * @return true if service is running and finished its warm-up (if any)
+     */
+    public boolean isReady() {
+        return state.get() == RUNNING && (warmedUp || !(service instanceof WarmUp));
+    }
+
+    private void warmUp() {
+        WarmUp warmUp = (WarmUp) service;
+        long startedAt = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(warmUpTimeout);
+        int limit = warmUpIterations > 0 || warmUpTimeout > 0 ? warmUpIterations : 1;
+        int iterations = 0;
+        try {
+            while ((limit <= 0 || iterations < limit) && service.state() == RUNNING
+                    && (timeoutNanos <= 0 || System.nanoTime() - startedAt < timeoutNanos)) {
+                warmUp.warmUp();
+                iterations++;
+            }
+        } catch (Exception e) {
+            LOG.warn("Warm-up of service " + describe() + " failed after " + iterations + " iterations", e);
+        } finally {
+            warmedUp = true;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Service " + describe() + " warmed up in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+                    + " ms, " + iterations + " iterations");
+        }
+    }
+
     @Override
     public void stop(Runnable callback) {
         AsyncStopSupportListener asyncStopSupport = new AsyncStopSupportListener(callback);
         service.addListener(asyncStopSupport, Runnable::run);
-        service.stopAsync();
+        if (coordinator == null || !coordinator.stopAsync(this)) {
+            stopServiceAsync();
+        }
         if (TERMINAL_STATES.contains(service.state())) {
             //Execute callback if service was stopped before adding listener.
             //Listener is responsible for executing callback only once
             asyncStopSupport.executeCallback();
+            return;
+        }
+        long timeout = stopTimeoutNanos();
+        if (timeout >= 0) {
+            asyncStopSupport.scheduleTimeout(timeout);
         }
     }
 
     @Override
     public void stop() {
-        service.stopAsync();
+        long timeout = stopTimeoutNanos();
+        stopServiceAsync();
         try {
-            service.awaitTerminated();
+            if (timeout < 0) {
+                service.awaitTerminated();
+            } else {
+                service.awaitTerminated(timeout, TimeUnit.NANOSECONDS);
+            }
+            updateState(TERMINATED);
+        } catch (TimeoutException e) {
+            stopTimedOut(timeout);
         } catch (IllegalStateException e) {
             if (service.state() != State.FAILED) {
                 throw e;
             }
+            updateState(FAILED);
+        }
+    }
+
+    /**
+     * Initiates stop of service. {@link Drainable} service is drained first, so it is stopped later on timer thread.
+     */
+    void stopServiceAsync() {
+        if (!(service instanceof Drainable) || !RUNNING_STATES.contains(state.get())) {
+            service.stopAsync();
+        } else if (drainStarted.compareAndSet(false, true)) {
+            new ServiceDrain((Drainable) service, describe(), drainTimeoutNanos(), service::stopAsync).start();
+        }
+    }
+
+    /**
+     * Initiates stop of service without blocking caller. {@link Drainable} service is drained first.
+     * Coordinator is not taken into account.
+     *
+     * @return future completed with TERMINATED once service is stopped. Future is completed exceptionally with
+     * {@link IllegalStateException} if service fails or with {@link TimeoutException} if it does not stop
+     * within stop timeout or shutdown budget
+     */
+    public CompletableFuture<State> stopAsync() {
+        CompletableFuture<State> future = stateFuture(TERMINATED);
+        stopServiceAsync();
+        long timeoutNanos = stopTimeoutNanos();
+        if (timeoutNanos >= 0 && !future.isDone()) {
+            ScheduledFuture<?> timeout = LifecycleTimer.schedule(() -> {
+                if (!future.isDone()) {
+                    stopTimedOut(timeoutNanos);
+                    future.completeExceptionally(new TimeoutException("Service " + describe() + " did not stop within "
+                            + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"));
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            future.whenComplete((state, failure) -> timeout.cancel(false));
+        }
+        return future;
+    }
+
+    /**
+     * Starts provided adapters concurrently with {@link #startAsync()}.
+     *
+     * @return future completed once all services are running or exceptionally as soon as any of them fails to start
+     */
+    public static CompletableFuture<Void> startAll(Collection<? extends ServiceSmartLifecycle> lifecycles) {
+        return allOf(lifecycles, true);
+    }
+
+    /**
+     * Stops provided adapters concurrently with {@link #stopAsync()}.
+     *
+     * @return future completed once all services are stopped. It is completed exceptionally
+     * if any of them fails or does not stop in time, but only after all of them are done
+     */
+    public static CompletableFuture<Void> stopAll(Collection<? extends ServiceSmartLifecycle> lifecycles) {
+        return allOf(lifecycles, false);
+    }
+
+    private static CompletableFuture<Void> allOf(Collection<? extends ServiceSmartLifecycle> lifecycles, boolean start) {
+        List<CompletableFuture<State>> futures = new ArrayList<>(lifecycles.size());
+        for (ServiceSmartLifecycle lifecycle : lifecycles) {
+            futures.add(start ? lifecycle.startAsync() : lifecycle.stopAsync());
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        if (start) {
+            for (CompletableFuture<State> future : futures) {
+                future.whenComplete((state, failure) -> {
+                    if (failure != null) {
+                        all.completeExceptionally(failure);
+                    }
+                });
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return future completed by listener once service reaches target state
+     */
+    private CompletableFuture<State> stateFuture(State target) {
+        CompletableFuture<State> future = new CompletableFuture<>();
+        service.addListener(new StateFutureListener(future, target), Runnable::run);
+        //Transitions that happened before listener was added are not delivered to it
+        State current = service.state();
+        completeOn(future, target, current, current == FAILED ? service.failureCause() : null);
+        return future;
+    }
+
+    private void completeOn(CompletableFuture<State> future, State target, State observed, Throwable failure) {
+        updateState(observed);
+        if (observed == target) {
+            future.complete(observed);
+        } else if (observed == FAILED) {
+            future.completeExceptionally(new IllegalStateException("Service " + describe() + " failed", failure));
+        } else if (target == RUNNING && observed.ordinal() > RUNNING.ordinal()) {
+            future.completeExceptionally(new IllegalStateException("Service " + describe() + " is " + observed
+                    + " before it was running"));
+        }
+    }
+
+    private long drainTimeoutNanos() {
+        long timeout = drainTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(drainTimeout) : -1;
+        if (shutdownBudget != null) {
+            long remaining = shutdownBudget.remainingNanos();
+            timeout = timeout < 0 ? remaining : Math.min(timeout, remaining);
+        }
+        return timeout;
+    }
+
+    private long stopTimeoutNanos() {
+        long timeout = stopTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(stopTimeout) : -1;
+        if (shutdownBudget != null) {
+            long remaining = shutdownBudget.remainingNanos();
+            timeout = timeout < 0 ? remaining : Math.min(timeout, remaining);
+        }
+        return timeout;
+    }
+
+    private void stopTimedOut(long timeoutNanos) {
+        LOG.warn("Service " + describe() + " did not stop within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                + " ms. Stop waiting for it");
+        if (coordinator != null) {
+            coordinator.stopTimedOut(this);
         }
     }
 
+    String describe() {
+        return serviceBeanName == null ? String.valueOf(service) : "[" + serviceBeanName + "]";
+    }
+
     @Override
     public void destroy() throws Exception {
         if (stopOnDestroy) {
@@ -135,7 +772,31 @@ public class ServiceSmartLifecycle implements SmartLifecycle, DisposableBean {
 
     @Override
     public boolean isRunning() {
-        return RUNNING_STATES.contains(service.state());
+        return RUNNING_STATES.contains(state.get());
+    }
+
+    /**
+     * Returns cached state of service. Cached state is updated by listener after service transition,
+     * so it may briefly lag behind {@link Service#state()}.
+     *
+     * @return last observed state of service
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Service transitions only move forward in terms of state ordinals (NEW, STARTING, RUNNING, STOPPING,
+     * TERMINATED, FAILED), so stale observation never overrides newer one.
+     */
+    private void updateState(State observed) {
+        if (observed == null) {
+            return;
+        }
+        State current = state.get();
+        while (current.ordinal() < observed.ordinal() && !state.compareAndSet(current, observed)) {
+            current = state.get();
+        }
     }
 
     @Override
@@ -147,9 +808,76 @@ public class ServiceSmartLifecycle implements SmartLifecycle, DisposableBean {
         this.phase = phase;
     }
 
-    private static class AsyncStopSupportListener extends Service.Listener {
+    private class StateTracker extends Service.Listener {
+        @Override
+        public void starting() {
+            updateState(STARTING);
+        }
+
+        @Override
+        public void running() {
+            updateState(RUNNING);
+        }
+
+        @Override
+        public void stopping(State from) {
+            updateState(STOPPING);
+        }
+
+        @Override
+        public void terminated(State from) {
+            updateState(TERMINATED);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            updateState(FAILED);
+        }
+    }
+
+    private class WarmUpStarter extends Service.Listener {
+        @Override
+        public void running() {
+            Thread thread = new Thread(ServiceSmartLifecycle.this::warmUp, "gusp-warm-up-" + describe());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private class StateFutureListener extends Service.Listener {
+        private final CompletableFuture<State> future;
+        private final State target;
+
+        private StateFutureListener(CompletableFuture<State> future, State target) {
+            this.future = future;
+            this.target = target;
+        }
+
+        @Override
+        public void running() {
+            completeOn(future, target, RUNNING, null);
+        }
+
+        @Override
+        public void stopping(State from) {
+            completeOn(future, target, STOPPING, null);
+        }
+
+        @Override
+        public void terminated(State from) {
+            completeOn(future, target, TERMINATED, null);
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            completeOn(future, target, FAILED, failure);
+        }
+    }
+
+    private class AsyncStopSupportListener extends Service.Listener {
         private final AtomicBoolean callbackExecuted = new AtomicBoolean();
         private final Runnable callback;
+        private volatile ScheduledFuture<?> timeout;
 
         private AsyncStopSupportListener(Runnable callback) {
             this.callback = callback;
@@ -167,8 +895,21 @@ public class ServiceSmartLifecycle implements SmartLifecycle, DisposableBean {
 
         public void executeCallback() {
             if (callbackExecuted.compareAndSet(false, true)) {
+                ScheduledFuture<?> timeout = this.timeout;
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
                 callback.run();
             }
         }
+
+        private void scheduleTimeout(long timeoutNanos) {
+            timeout = LifecycleTimer.schedule(() -> {
+                if (!callbackExecuted.get()) {
+                    stopTimedOut(timeoutNanos);
+                    executeCallback();
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
     }
 }
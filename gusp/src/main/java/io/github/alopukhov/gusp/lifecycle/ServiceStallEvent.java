@@ -0,0 +1,52 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service.State;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Map;
+
+/**
+ * Published by {@link StallWatchdog} when service is stuck in STARTING or STOPPING state.
+ * Source of event is {@link ServiceSmartLifecycle ServiceSmartLifecycle} adapter of stuck service.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ServiceStallEvent extends ApplicationEvent {
+    private static final long serialVersionUID = 1L;
+
+    private final State state;
+    private final long stalledFor;
+    private final transient Map<Thread, StackTraceElement[]> stackTraces;
+
+    public ServiceStallEvent(ServiceSmartLifecycle source, State state, long stalledFor,
+                             Map<Thread, StackTraceElement[]> stackTraces) {
+        super(source);
+        this.state = state;
+        this.stalledFor = stalledFor;
+        this.stackTraces = stackTraces;
+    }
+
+    public ServiceSmartLifecycle getLifecycle() {
+        return (ServiceSmartLifecycle) getSource();
+    }
+
+    /**
+     * @return state service is stuck in
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return time in milliseconds service spent in its state so far
+     */
+    public long getStalledFor() {
+        return stalledFor;
+    }
+
+    /**
+     * @return stack traces of service threads captured when stall was detected
+     */
+    public Map<Thread, StackTraceElement[]> getStackTraces() {
+        return stackTraces;
+    }
+}
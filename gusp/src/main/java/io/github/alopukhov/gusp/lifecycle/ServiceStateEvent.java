@@ -0,0 +1,43 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning stay of managed service in one state.
+ * Committed when service leaves the state, so duration of STARTING and STOPPING events is start and stop time.
+ * <p>
+ * Loaded only if flight recorder is available.
+ *
+ * @see ServiceEventRecorder
+ */
+@Name(ServiceStateEvent.NAME)
+@Label("Service State")
+@Category({"GUSP", "Lifecycle"})
+@Description("Stay of Guava service in lifecycle state")
+@StackTrace(false)
+class ServiceStateEvent extends Event {
+    static final String NAME = "io.github.alopukhov.gusp.ServiceState";
+
+    @Label("Bean Name")
+    String beanName;
+
+    @Label("Service Class")
+    Class<?> serviceClass;
+
+    @Label("Phase")
+    int phase;
+
+    @Label("State")
+    String state;
+
+    @Label("Next State")
+    String nextState;
+
+    @Label("Failure")
+    String failure;
+}
@@ -0,0 +1,64 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service.State;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Context wide view of states of managed services. Intended to back health checks polling many services.
+ * <p>
+ * States are read from {@link ServiceSmartLifecycle#getState() cached state} of
+ * {@link ServiceSmartLifecycle ServiceSmartLifecycle} members, so no service monitor is locked.
+ * Members are registered with {@link ServiceSmartLifecycle#setStateRegistry(ServiceStateRegistry)}.
+ */
+public class ServiceStateRegistry {
+    private final List<ServiceSmartLifecycle> members = new CopyOnWriteArrayList<>();
+
+    void register(ServiceSmartLifecycle member) {
+        members.add(requireNonNull(member, "member"));
+    }
+
+    void unregister(ServiceSmartLifecycle member) {
+        members.remove(member);
+    }
+
+    /**
+     * Passes every member with its cached state to provided action. Allocates nothing but iterator.
+     */
+    public void forEachState(BiConsumer<? super ServiceSmartLifecycle, ? super State> action) {
+        for (ServiceSmartLifecycle member : members) {
+            action.accept(member, member.getState());
+        }
+    }
+
+    /**
+     * @return cached states of members keyed by service bean name (or service itself if bean name is unknown)
+     */
+    public Map<String, State> getStates() {
+        Map<String, State> states = new LinkedHashMap<>();
+        for (ServiceSmartLifecycle member : members) {
+            String name = member.getServiceBeanName();
+            states.put(name == null ? String.valueOf(member.getService()) : name, member.getState());
+        }
+        return states;
+    }
+
+    /**
+     * @return number of members in provided state
+     */
+    public int count(State state) {
+        int count = 0;
+        for (ServiceSmartLifecycle member : members) {
+            if (member.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
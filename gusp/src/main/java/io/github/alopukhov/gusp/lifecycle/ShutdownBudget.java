@@ -0,0 +1,67 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.ContextStartedEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget for stopping services shared by all {@link ServiceSmartLifecycle ServiceSmartLifecycle} adapters
+ * it is set for. Budget is counted from the first stop request of any adapter and is shared across all phases:
+ * once it is exhausted adapters stop waiting for their services to terminate.
+ * Budget is restored when context is refreshed or started again, so every stop gets full budget.
+ * <p>
+ * Enable it with {@link io.github.alopukhov.gusp.annotations.EnableGusp#shutdownBudget() @EnableGusp(shutdownBudget = ...)}
+ * or {@link WithSmartLifecyclePostprocessor#setShutdownBudget(long)}.
+ *
+ * @see ServiceSmartLifecycle#setShutdownBudget(ShutdownBudget)
+ */
+public class ShutdownBudget implements ApplicationListener<ApplicationContextEvent> {
+    private final long budgetNanos;
+    private long deadline;
+    private boolean started;
+
+    /**
+     * @param budgetMillis budget in milliseconds
+     */
+    public ShutdownBudget(long budgetMillis) {
+        this(budgetMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public ShutdownBudget(long budget, TimeUnit unit) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Negative shutdown budget " + budget);
+        }
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Starts counting budget if it was not started yet.
+     *
+     * @return remaining budget in nanoseconds, never negative
+     */
+    public synchronized long remainingNanos() {
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            deadline = now + budgetNanos;
+        }
+        return Math.max(0, deadline - now);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        if (event instanceof ContextRefreshedEvent || event instanceof ContextStartedEvent) {
+            reset();
+        }
+    }
+
+    /**
+     * Restores full budget. Counting starts again on next stop request.
+     */
+    public synchronized void reset() {
+        started = false;
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.util.concurrent.Service.State.STARTING;
+import static com.google.common.util.concurrent.Service.State.STOPPING;
+
+/**
+ * Reports services stuck in STARTING or STOPPING state.
+ * <p>
+ * Once service spends more than threshold in one of these states watchdog captures stack traces of its threads,
+ * logs them and publishes {@link ServiceStallEvent}. While service stays stuck report is repeated at most once per
+ * report interval. Threads of service are found by name: threads named exactly after service bean name or service class
+ * (guava default), optionally followed by space and state (as guava names threads of idle services), are captured.
+ * If none is found no stack traces are captured.
+ * Stack traces are captured and event is published on dedicated daemon thread, so slow listeners
+ * do not delay lifecycle timeouts.
+ * <p>
+ * Adapters are registered with {@link ServiceSmartLifecycle#setStallWatchdog(StallWatchdog)}.
+ * Enable it with {@link io.github.alopukhov.gusp.annotations.EnableGusp#stallThreshold() @EnableGusp(stallThreshold = ...)}
+ * or {@link WithSmartLifecyclePostprocessor#setStallThreshold(long)}.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class StallWatchdog implements ApplicationEventPublisherAware {
+    private static final Log LOG = LogFactory.getLog(StallWatchdog.class);
+
+    private final long threshold;
+    private final Executor reporter = createReporter();
+    private long reportInterval = 60000;
+    private ApplicationEventPublisher publisher;
+
+    /**
+     * @param threshold time in milliseconds service may spend starting or stopping before it is reported
+     */
+    public StallWatchdog(long threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Stall threshold must be positive");
+        }
+        this.threshold = threshold;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    public long getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * Sets minimum time in milliseconds between reports of the same stuck service. Default is 60000.
+     */
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    Service.Listener watch(ServiceSmartLifecycle member) {
+        return new Watch(member);
+    }
+
+    private static Executor createReporter() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "gusp-stall-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void report(ServiceSmartLifecycle member, State state, long stalledNanos) {
+        long stalledFor = TimeUnit.NANOSECONDS.toMillis(stalledNanos);
+        Map<Thread, StackTraceElement[]> stackTraces = stackTraces(member);
+        StringBuilder message = new StringBuilder("Service ").append(member.describe()).append(" is ").append(state)
+                .append(" for ").append(stalledFor).append(" ms");
+        if (stackTraces.isEmpty()) {
+            message.append(", no threads of service found");
+        }
+        for (Map.Entry<Thread, StackTraceElement[]> entry : stackTraces.entrySet()) {
+            Thread thread = entry.getKey();
+            message.append("\n\"").append(thread.getName()).append("\" ").append(thread.getState());
+            for (StackTraceElement element : entry.getValue()) {
+                message.append("\n\tat ").append(element);
+            }
+        }
+        LOG.warn(message);
+        if (publisher != null) {
+            publisher.publishEvent(new ServiceStallEvent(member, state, stalledFor, stackTraces));
+        }
+    }
+
+    private static Map<Thread, StackTraceElement[]> stackTraces(ServiceSmartLifecycle member) {
+        List<String> names = new ArrayList<>();
+        if (member.getServiceBeanName() != null) {
+            names.add(member.getServiceBeanName());
+        }
+        String className = member.getService().getClass().getSimpleName();
+        if (!className.isEmpty()) {
+            names.add(className);
+        }
+        Map<Thread, StackTraceElement[]> matched = new LinkedHashMap<>();
+        for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            for (String name : names) {
+                if (isNamedAfter(entry.getKey().getName(), name)) {
+                    matched.put(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static boolean isNamedAfter(String threadName, String name) {
+        return threadName.equals(name) || threadName.startsWith(name + " ");
+    }
+
+    private class Watch extends Service.Listener {
+        private final ServiceSmartLifecycle member;
+        private ScheduledFuture<?> pending;
+        private long stay;
+
+        private Watch(ServiceSmartLifecycle member) {
+            this.member = member;
+        }
+
+        @Override
+        public void starting() {
+            arm(STARTING);
+        }
+
+        @Override
+        public void running() {
+            disarm();
+        }
+
+        @Override
+        public void stopping(State from) {
+            arm(STOPPING);
+        }
+
+        @Override
+        public void terminated(State from) {
+            disarm();
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            disarm();
+        }
+
+        private synchronized void arm(State state) {
+            disarm();
+            if (member.getStallWatchdog() != StallWatchdog.this) {
+                return;
+            }
+            long enteredAt = System.nanoTime();
+            long current = stay;
+            pending = LifecycleTimer.schedule(() -> check(current, state, enteredAt), threshold, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void disarm() {
+            stay++;
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+
+        private void check(long checked, State state, long enteredAt) {
+            synchronized (this) {
+                if (checked != stay || member.getService().state() != state
+                        || member.getStallWatchdog() != StallWatchdog.this) {
+                    return;
+                }
+                pending = LifecycleTimer.schedule(() -> check(checked, state, enteredAt), reportInterval,
+                        TimeUnit.MILLISECONDS);
+            }
+            long stalledNanos = System.nanoTime() - enteredAt;
+            reporter.execute(() -> {
+                try {
+                    report(member, state, stalledNanos);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to report stall of service " + member.describe(), e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+/**
+ * Defines when managed service is started.
+ *
+ * @see ServiceSmartLifecycle#setStartMode(StartMode)
+ * @see io.github.alopukhov.gusp.annotations.WithSmartLifecycle#startMode()
+ */
+public enum StartMode {
+    /**
+     * Service is started by spring context together with other lifecycle beans if autoStartup is enabled.
+     */
+    EAGER,
+    /**
+     * Service is started on first call through its business interface.
+     *
+     * @see LazyServiceProxyFactoryBean
+     */
+    LAZY,
+    /**
+     * Service is started in background by {@link DeferredStarter} once context is refreshed if autoStartup is enabled.
+     * Deferred services are started in order of their priority.
+     *
+     * @see ServiceSmartLifecycle#setPriority(int)
+     */
+    DEFERRED
+}
@@ -0,0 +1,227 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Start durations of services observed across runs.
+ * <p>
+ * Profile is kept in local properties file keyed by service bean name. Every observed start updates
+ * exponential moving average of start duration. Profile is saved once context is refreshed and once it is closed.
+ * {@link PhaseStartCoordinator} starts services of a phase longest first according to profile, so the slowest service
+ * starts as early as possible. Services missing from profile or not observed within maxAge keep declared order
+ * and are started after known ones.
+ * <p>
+ * Adapters are registered with {@link ServiceSmartLifecycle#setStartupProfile(StartupProfile)}.
+ * Enable it with {@link io.github.alopukhov.gusp.annotations.EnableGusp#startupProfile() @EnableGusp(startupProfile = ...)}
+ * or {@link WithSmartLifecyclePostprocessor#setStartupProfile(String)}.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class StartupProfile implements ApplicationListener<ApplicationContextEvent> {
+    private static final Log LOG = LogFactory.getLog(StartupProfile.class);
+    private static final long UNKNOWN = -1;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> observed = new ConcurrentHashMap<>();
+    private double smoothing = 0.5;
+    private long maxAge = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * Creates profile and loads it from provided file if it exists.
+     */
+    public StartupProfile(String file) {
+        this.file = Paths.get(requireNonNull(file, "file"));
+        load();
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * Sets weight of last observed start duration in moving average, from 0 (exclusive) to 1 (inclusive).
+     * Default is 0.5.
+     */
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets time in milliseconds after which profile entry not updated is considered stale. Default is 30 days.
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return average start duration in milliseconds or -1 if service is missing from profile or its entry is stale
+     */
+    public long getExpectedStartDuration(String beanName) {
+        Entry entry = beanName == null ? null : entries.get(beanName);
+        return entry == null || isStale(entry) ? UNKNOWN : Math.round(entry.average);
+    }
+
+    /**
+     * @return average start durations in milliseconds of services with fresh entries, longest first
+     */
+    public Map<String, Long> getStartDurations() {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!isStale(entry.getValue())) {
+                names.add(entry.getKey());
+            }
+        }
+        names.sort(Comparator.comparingLong(this::getExpectedStartDuration).reversed());
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (String name : names) {
+            durations.put(name, getExpectedStartDuration(name));
+        }
+        return durations;
+    }
+
+    /**
+     * @return human readable report of average and last observed start durations, longest first
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder("Startup profile ").append(file).append(':');
+        getStartDurations().forEach((name, average) -> {
+            Long last = observed.get(name);
+            report.append("\n  ").append(name).append(": average ").append(average).append(" ms, last ")
+                    .append(last == null ? "-" : last + " ms");
+        });
+        return report.toString();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        if (event instanceof ContextRefreshedEvent || event instanceof ContextClosedEvent) {
+            save();
+        }
+    }
+
+    /**
+     * Writes profile to its file. Failure is logged.
+     */
+    public synchronized void save() {
+        Properties properties = new Properties();
+        entries.forEach((name, entry) -> properties.setProperty(name, entry.average + "," + entry.updatedAt));
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "GUSP startup profile: bean name = average start duration in ms,last update time");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Failed to save startup profile " + file, e);
+            return;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(getReport());
+        }
+    }
+
+    /**
+     * @return provided members ordered by expected start duration, longest first. Unknown members keep their order
+     * and follow known ones
+     */
+    List<ServiceSmartLifecycle> order(List<ServiceSmartLifecycle> members) {
+        List<ServiceSmartLifecycle> ordered = new ArrayList<>(members);
+        ordered.sort(Comparator.comparingLong(
+                (ServiceSmartLifecycle member) -> getExpectedStartDuration(member.getServiceBeanName())).reversed());
+        return ordered;
+    }
+
+    void record(String beanName, long duration) {
+        long now = System.currentTimeMillis();
+        observed.put(beanName, duration);
+        entries.compute(beanName, (name, entry) -> entry == null || isStale(entry) ? new Entry(duration, now)
+                : new Entry(smoothing * duration + (1 - smoothing) * entry.average, now));
+    }
+
+    Service.Listener recorder(ServiceSmartLifecycle member) {
+        return new Recorder(member);
+    }
+
+    private boolean isStale(Entry entry) {
+        return System.currentTimeMillis() - entry.updatedAt > maxAge;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            LOG.warn("Failed to load startup profile " + file + ". Starting with empty one", e);
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String[] values = properties.getProperty(name).split(",");
+            try {
+                entries.put(name, new Entry(Double.parseDouble(values[0]), Long.parseLong(values[1])));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                LOG.warn("Ignoring malformed entry [" + name + "] of startup profile " + file);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final double average;
+        private final long updatedAt;
+
+        private Entry(double average, long updatedAt) {
+            this.average = average;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private class Recorder extends Service.Listener {
+        private final ServiceSmartLifecycle member;
+
+        private Recorder(ServiceSmartLifecycle member) {
+            this.member = member;
+        }
+
+        @Override
+        public void running() {
+            long duration = member.getStats().getStartDuration();
+            if (member.getStartupProfile() == StartupProfile.this && member.getServiceBeanName() != null && duration >= 0) {
+                record(member.getServiceBeanName(), TimeUnit.NANOSECONDS.toMillis(duration));
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.google.common.util.concurrent.Service.State.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Service that supervises instances of another service and replaces failed instance with a fresh one.
+ * <p>
+ * Guava service can not be restarted once failed, so instances are obtained from {@link ObjectFactory}
+ * (e.g. prototype bean). Supervisor is running while current instance is running or being restarted.
+ * Restarts are delayed with exponential backoff starting at restartBackoff and bounded by maxRestartBackoff.
+ * If more than maxRestarts restarts are required within restartWindow supervisor fails with cause of the last failure.
+ * It fails as well if new instance can not be created.
+ * Supervision runs on shared lifecycle timer thread, so {@code startAsync()} of instances must not block.
+ * Replacement instances are created on separate thread and handed back to timer thread.
+ * <p>
+ * Running supervisor may be {@link #suspend(long, TimeUnit) suspended}: current instance is stopped while supervisor stays
+ * running until it is {@link #resume(long, TimeUnit) resumed} with fresh instance (e.g. around CRaC checkpoint).
+ * <p>
+ * Created by {@link WithSmartLifecyclePostprocessor} for services annotated with {@code supervised = true}.
+ *
+ * @see SupervisedServiceProxyFactoryBean
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class SupervisedService extends AbstractService {
+    private static final Log LOG = LogFactory.getLog(SupervisedService.class);
+
+    private final ObjectFactory<? extends Service> factory;
+    private final Deque<Long> restartTimes = new ArrayDeque<>();
+    private volatile Service current;
+    private volatile int restarts;
+    private ScheduledFuture<?> pendingRestart;
+    private int creation;
+    private CompletableFuture<Service> resuming;
+    private boolean started;
+    private volatile boolean suspended;
+    private long restartBackoff = 100;
+    private long maxRestartBackoff = 30000;
+    private int maxRestarts = 5;
+    private long restartWindow = 60000;
+
+    /**
+     * Creates supervisor. First instance is obtained from factory right away.
+     */
+    public SupervisedService(ObjectFactory<? extends Service> factory) {
+        this.factory = requireNonNull(factory, "factory");
+        this.current = requireNonNull(SupervisedTargetGuard.create(factory), "service");
+    }
+
+    /**
+     * @return current instance of supervised service
+     */
+    public Service getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return number of restarts performed so far
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public long getRestartBackoff() {
+        return restartBackoff;
+    }
+
+    /**
+     * Sets delay in milliseconds before first restart. Each subsequent restart within restart window doubles it.
+     * Default is 100.
+     */
+    public void setRestartBackoff(long restartBackoff) {
+        this.restartBackoff = restartBackoff;
+    }
+
+    public long getMaxRestartBackoff() {
+        return maxRestartBackoff;
+    }
+
+    /**
+     * Sets maximum delay in milliseconds before restart. Default is 30000.
+     */
+    public void setMaxRestartBackoff(long maxRestartBackoff) {
+        this.maxRestartBackoff = maxRestartBackoff;
+    }
+
+    public int getMaxRestarts() {
+        return maxRestarts;
+    }
+
+    /**
+     * Sets maximum number of restarts within restart window. Default is 5.
+     */
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = maxRestarts;
+    }
+
+    public long getRestartWindow() {
+        return restartWindow;
+    }
+
+    /**
+     * Sets time window in milliseconds for restart intensity limit. Default is 60000.
+     */
+    public void setRestartWindow(long restartWindow) {
+        this.restartWindow = restartWindow;
+    }
+
+    /**
+     * @return true if supervisor is suspended
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Stops current instance keeping supervisor running. Pending restart is cancelled.
+     * Awaits until current instance is stopped.
+     *
+     * @throws IllegalStateException if supervisor is not running
+     * @throws TimeoutException if instance is not stopped within provided timeout
+     */
+    public void suspend(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        long startedAt = System.nanoTime();
+        Service instance = executeOnTimer(result -> result.complete(suspendInstance()), timeout, unit);
+        try {
+            instance.awaitTerminated(unit.toNanos(timeout) - (System.nanoTime() - startedAt), TimeUnit.NANOSECONDS);
+        } catch (IllegalStateException e) {
+            //Instance failed to stop, it is not running anyway
+            LOG.warn("Service " + instance + " failed while being suspended", e);
+        }
+    }
+
+    /**
+     * Replaces instance stopped by {@link #suspend(long, TimeUnit)} with fresh one and awaits until it is running.
+     * Does nothing if supervisor is not suspended.
+     *
+     * @throws IllegalStateException if new instance fails to start or can not be created
+     * @throws TimeoutException if new instance is not running within provided timeout
+     */
+    public void resume(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        long startedAt = System.nanoTime();
+        Service instance = executeOnTimer(this::resumeInstance, timeout, unit);
+        instance.awaitRunning(unit.toNanos(timeout) - (System.nanoTime() - startedAt), TimeUnit.NANOSECONDS);
+    }
+
+    private static Service executeOnTimer(Consumer<CompletableFuture<Service>> action, long timeout, TimeUnit unit)
+            throws TimeoutException, InterruptedException {
+        CompletableFuture<Service> result = new CompletableFuture<>();
+        LifecycleTimer.execute(() -> {
+            try {
+                action.accept(result);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.get(timeout, unit);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        LifecycleTimer.execute(() -> launch(current));
+    }
+
+    @Override
+    protected void doStop() {
+        LifecycleTimer.execute(this::stopInstance);
+    }
+
+    //Methods below are executed on lifecycle timer thread only
+
+    /**
+     * Creates new instance off timer thread. Result is dropped if supervisor was stopped, suspended
+     * or resumed meanwhile.
+     */
+    private void createInstance(BiConsumer<Service, Throwable> callback) {
+        int requested = ++creation;
+        LifecycleTimer.create(() -> requireNonNull(SupervisedTargetGuard.create(factory), "service"),
+                (Service instance, Throwable failure) -> {
+                    if (requested == creation) {
+                        callback.accept(instance, failure);
+                    }
+                });
+    }
+
+    private void launch(Service instance) {
+        instance.addListener(new InstanceListener(instance), LifecycleTimer::execute);
+        instance.startAsync();
+    }
+
+    private Service suspendInstance() {
+        if (state() != RUNNING) {
+            throw new IllegalStateException("Can't suspend " + this);
+        }
+        abandonCreation();
+        if (pendingRestart != null) {
+            pendingRestart.cancel(false);
+            pendingRestart = null;
+        }
+        suspended = true;
+        return current.stopAsync();
+    }
+
+    private void resumeInstance(CompletableFuture<Service> result) {
+        if (!suspended) {
+            result.complete(current);
+            return;
+        }
+        if (state() != RUNNING) {
+            throw new IllegalStateException("Can't resume " + this);
+        }
+        if (resuming == null) {
+            CompletableFuture<Service> resumed = new CompletableFuture<>();
+            resuming = resumed;
+            createInstance((instance, failure) -> {
+                resuming = null;
+                if (failure != null) {
+                    notifyFailed(failure);
+                    resumed.completeExceptionally(failure);
+                    return;
+                }
+                suspended = false;
+                current = instance;
+                launch(instance);
+                resumed.complete(instance);
+            });
+        }
+        resuming.whenComplete((instance, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(instance);
+            }
+        });
+    }
+
+    private void abandonCreation() {
+        creation++;
+        if (resuming != null) {
+            resuming.completeExceptionally(new IllegalStateException("Can't resume " + this));
+            resuming = null;
+        }
+    }
+
+    private void stopInstance() {
+        abandonCreation();
+        if (pendingRestart != null) {
+            pendingRestart.cancel(false);
+            pendingRestart = null;
+        }
+        State state = current.stopAsync().state();
+        if (state == TERMINATED || state == FAILED) {
+            //Instance was stopped before or failed and waits for restart
+            stopped();
+        }
+    }
+
+    private void started(Service instance) {
+        State state = state();
+        if (instance == current && !started && (state == STARTING || state == STOPPING)) {
+            started = true;
+            notifyStarted();
+        }
+    }
+
+    private void stopped() {
+        State state = state();
+        if (state == STOPPING || state == RUNNING) {
+            notifyStopped();
+        }
+    }
+
+    private void instanceFailed(Service instance, State from, Throwable cause) {
+        if (instance != current || (suspended && state() == RUNNING)) {
+            return;
+        }
+        State state = state();
+        if (state == STOPPING && (!started || from == STOPPING)) {
+            //Instance failed to stop or stop was requested before first instance started
+            notifyFailed(cause);
+            return;
+        }
+        if (state != STARTING && state != RUNNING) {
+            //Failed instance is handled by pending stop
+            return;
+        }
+        long now = System.nanoTime();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(restartWindow);
+        while (!restartTimes.isEmpty() && now - restartTimes.peekFirst() >= windowNanos) {
+            restartTimes.pollFirst();
+        }
+        if (restartTimes.size() >= maxRestarts) {
+            LOG.error("Service " + instance + " failed " + (restartTimes.size() + 1) + " times within " + restartWindow
+                    + " ms. Giving up", cause);
+            notifyFailed(cause);
+            return;
+        }
+        restartTimes.addLast(now);
+        long delay = backoff(restartTimes.size());
+        LOG.warn("Service " + instance + " failed. Restarting in " + delay + " ms", cause);
+        pendingRestart = LifecycleTimer.schedule(this::restart, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private long backoff(int attempt) {
+        long delay = restartBackoff;
+        for (int i = 1; i < attempt && delay < maxRestartBackoff; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxRestartBackoff);
+    }
+
+    private void restart() {
+        pendingRestart = null;
+        State state = state();
+        if (state == STOPPING && !started) {
+            //Stop was requested before first instance started. Let guava proceed to doStop
+            started = true;
+            notifyStarted();
+            return;
+        }
+        if (state != STARTING && state != RUNNING) {
+            return;
+        }
+        createInstance(this::restarted);
+    }
+
+    private void restarted(Service instance, Throwable failure) {
+        State state = state();
+        if (state == STOPPING && !started) {
+            //Stop was requested while first replacement was created. Let guava proceed to doStop
+            started = true;
+            notifyStarted();
+            return;
+        }
+        if (state != STARTING && state != RUNNING) {
+            return;
+        }
+        if (failure != null) {
+            LOG.error("Failed to create new instance of service " + current, failure);
+            notifyFailed(failure);
+            return;
+        }
+        current = instance;
+        restarts++;
+        launch(instance);
+    }
+
+    @Override
+    public String toString() {
+        return "Supervised " + current + " [" + state() + "]";
+    }
+
+    private class InstanceListener extends Service.Listener {
+        private final Service instance;
+
+        private InstanceListener(Service instance) {
+            this.instance = instance;
+        }
+
+        @Override
+        public void running() {
+            started(instance);
+        }
+
+        @Override
+        public void terminated(State from) {
+            if (instance == current && (!suspended || state() != RUNNING)) {
+                stopped();
+            }
+        }
+
+        @Override
+        public void failed(State from, Throwable failure) {
+            instanceFailed(instance, from, failure);
+        }
+    }
+}
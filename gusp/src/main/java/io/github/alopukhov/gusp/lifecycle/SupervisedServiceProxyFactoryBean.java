@@ -0,0 +1,81 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates stable facade of supervised service implementing all its interfaces,
+ * so injection points stay valid when failed instance is replaced.
+ * <p>
+ * Business methods are routed to {@link SupervisedService#getCurrent() current instance},
+ * methods of {@link Service} interface are routed to {@link SupervisedService} itself.
+ * <p>
+ * Registered by {@link WithSmartLifecyclePostprocessor} for supervised services under name of service bean
+ * with {@value #FACADE_NAME_PREFIX} prefix, supervisor is registered with {@value #SUPERVISOR_NAME_PREFIX} prefix.
+ * Service bean itself stays prototype and is excluded from autowiring, so facade must be injected by interface.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class SupervisedServiceProxyFactoryBean implements FactoryBean<Object> {
+    public static final String FACADE_NAME_PREFIX = "gusp.supervised.";
+    public static final String SUPERVISOR_NAME_PREFIX = "gusp.supervisor.";
+
+    private final SupervisedService supervisor;
+    private final Object proxy;
+
+    public SupervisedServiceProxyFactoryBean(SupervisedService supervisor) {
+        this.supervisor = requireNonNull(supervisor, "supervisor");
+        Class<?> serviceClass = supervisor.getCurrent().getClass();
+        ClassLoader classLoader = serviceClass.getClassLoader();
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(serviceClass, classLoader);
+        this.proxy = Proxy.newProxyInstance(classLoader, interfaces, new SupervisedHandler());
+    }
+
+    @Override
+    public Object getObject() {
+        return proxy;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return proxy.getClass();
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+    private class SupervisedHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            Object target = method.getDeclaringClass() == Service.class ? supervisor : supervisor.getCurrent();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "Facade of " + supervisor;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import java.beans.PropertyDescriptor;
+
+/**
+ * Rejects creation of supervised service bean anywhere but in its {@link SupervisedService}.
+ * <p>
+ * Supervised service bean keeps its own name, so resolving it by name ({@code getBean(name)},
+ * {@code @Resource}, {@code @Qualifier}) would silently produce new instance nobody starts or supervises.
+ * Such lookups fail with {@link BeanCreationException} pointing to facade bean name instead.
+ * <p>
+ * Registered by {@link WithSmartLifecyclePostprocessor} when supervised services are present.
+ */
+public class SupervisedTargetGuard implements InstantiationAwareBeanPostProcessor, BeanFactoryAware {
+    static final String TARGET_ATTRIBUTE = SupervisedTargetGuard.class.getName() + ".target";
+    private static final ThreadLocal<Boolean> SUPERVISED_CREATION = new ThreadLocal<>();
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    /**
+     * Obtains new instance from factory on behalf of supervisor.
+     */
+    static <T> T create(ObjectFactory<T> factory) {
+        if (SUPERVISED_CREATION.get() != null) {
+            return factory.getObject();
+        }
+        SUPERVISED_CREATION.set(Boolean.TRUE);
+        try {
+            return factory.getObject();
+        } finally {
+            SUPERVISED_CREATION.remove();
+        }
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof ConfigurableListableBeanFactory) {
+            this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+        return null;
+    }
+
+    /**
+     * Checked after instantiation: spring skips before-instantiation callback for prototype
+     * once it returned {@code null}.
+     */
+    @Override
+    public boolean postProcessAfterInstantiation(Object bean, String beanName) throws BeansException {
+        if (SUPERVISED_CREATION.get() == null && isSupervisedTarget(beanName)) {
+            throw new BeanCreationException(beanName, "Supervised service must be resolved through its facade ["
+                    + SupervisedServiceProxyFactoryBean.FACADE_NAME_PREFIX + beanName
+                    + "] or by type, its instances are created by supervisor only");
+        }
+        return true;
+    }
+
+    @Override
+    public PropertyValues postProcessPropertyValues(PropertyValues pvs, PropertyDescriptor[] pds, Object bean,
+                                                    String beanName) throws BeansException {
+        return pvs;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    private boolean isSupervisedTarget(String beanName) {
+        return beanFactory != null && beanName != null && beanFactory.containsBeanDefinition(beanName)
+                && Boolean.TRUE.equals(beanFactory.getBeanDefinition(beanName).getAttribute(TARGET_ATTRIBUTE));
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+/**
+ * Warm-up hook of service. Implement it in service to exercise its hot paths and fill caches
+ * before it is reported as ready.
+ * <p>
+ * {@link ServiceSmartLifecycle ServiceSmartLifecycle} calls {@link #warmUp()} in separate thread
+ * once service is running, repeatedly up to warm-up iterations limit or until warm-up timeout elapses.
+ *
+ * @see ServiceSmartLifecycle#setWarmUpIterations(int)
+ * @see ServiceSmartLifecycle#setWarmUpTimeout(long)
+ * @see ServiceReadiness
+ */
+public interface WarmUp {
+    /**
+     * Performs one warm-up iteration. Thrown exception finishes warm-up.
+     */
+    void warmUp() throws Exception;
+}
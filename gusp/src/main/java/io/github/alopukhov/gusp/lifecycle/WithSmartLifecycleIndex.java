@@ -0,0 +1,109 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.type.MethodMetadata;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of classes and factory methods annotated with {@link io.github.alopukhov.gusp.annotations.WithSmartLifecycle}
+ * written by {@code gusp-indexer} annotation processor.
+ * <p>
+ * Index covers only classpath root (directory or jar) it is found in: annotation metadata of bean definitions
+ * declared by classes of indexed roots is read only if they are indexed. Classes of roots without index
+ * (e.g. jars built without processor) are always inspected. Set {@value #IGNORE_INDEX_PROPERTY} flag
+ * to inspect all bean definitions.
+ */
+final class WithSmartLifecycleIndex {
+    static final String INDEX_LOCATION = "META-INF/gusp.index";
+    static final String IGNORE_INDEX_PROPERTY = "gusp.index.ignore";
+
+    private final Set<String> entries;
+    private final Set<String> roots;
+    private final ClassLoader classLoader;
+    private final Map<String, Boolean> indexedClasses = new HashMap<>();
+
+    private WithSmartLifecycleIndex(Set<String> entries, Set<String> roots, ClassLoader classLoader) {
+        this.entries = entries;
+        this.roots = roots;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * @return index merged from all {@value #INDEX_LOCATION} resources or null if there are none
+     * or {@value #IGNORE_INDEX_PROPERTY} flag is set
+     * @throws IllegalStateException if index can not be read
+     */
+    static WithSmartLifecycleIndex load(ClassLoader classLoader) {
+        if (SpringProperties.getFlag(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+        Set<String> entries = new HashSet<>();
+        Set<String> roots = new HashSet<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                String location = url.toExternalForm();
+                roots.add(location.substring(0, location.length() - INDEX_LOCATION.length()));
+                read(url, entries);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load GUSP index from " + INDEX_LOCATION, e);
+        }
+        return roots.isEmpty() ? null : new WithSmartLifecycleIndex(entries, roots, classLoader);
+    }
+
+    private static void read(URL url, Set<String> entries) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    entries.add(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if declaring class of definition comes from indexed root and definition is not indexed
+     */
+    boolean mayBeAnnotated(AnnotatedBeanDefinition definition) {
+        MethodMetadata factoryMethod = definition.getFactoryMethodMetadata();
+        String className = factoryMethod != null ? factoryMethod.getDeclaringClassName()
+                : definition.getMetadata().getClassName();
+        if (!isIndexed(className)) {
+            return true;
+        }
+        if (factoryMethod != null) {
+            return entries.contains(className + "#" + factoryMethod.getMethodName());
+        }
+        return entries.contains(className);
+    }
+
+    private boolean isIndexed(String className) {
+        return indexedClasses.computeIfAbsent(className, name -> {
+            URL url = classLoader.getResource(name.replace('.', '/') + ".class");
+            if (url == null) {
+                return false;
+            }
+            String location = url.toExternalForm();
+            for (String root : roots) {
+                if (location.startsWith(root)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+}
@@ -1,18 +1,27 @@
 package io.github.alopukhov.gusp.lifecycle;
 
 import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import io.github.alopukhov.gusp.scheduling.SharedScheduler;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ObjectFactoryCreatingFactoryBean;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.beans.factory.support.BeanDefinitionValidationException;
+import org.springframework.core.SpringProperties;
 import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.ClassUtils;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -27,14 +36,160 @@ import java.util.Map;
  *         }
  *     }
  * </pre>
+ * If parallelStart feature is enabled all created adapters share single {@link PhaseStartCoordinator}
+ * so services of one phase are started together.
+ * If dependencyOrder feature is enabled all created adapters share single {@link DependencyGraphCoordinator}
+ * so services are started and stopped following their dependencies instead of phases.
+ * If shutdownBudget is set all created adapters share single {@link ShutdownBudget}.
+ * If stallThreshold is set all created adapters share single {@link StallWatchdog}.
+ * If startupProfile is set all created adapters and {@link PhaseStartCoordinator} share single {@link StartupProfile}.
+ * Services annotated with {@code sharedScheduler = true} share single {@link SharedScheduler} registered as
+ * {@value #SHARED_SCHEDULER_BEAN_NAME} unless bean with such name is already defined.
+ * Services with {@link StartMode#LAZY LAZY} start mode are renamed and replaced with {@link LazyServiceProxyFactoryBean}.
+ * Services with {@link StartMode#DEFERRED DEFERRED} start mode share single {@link DeferredStarter} registered as
+ * {@value #DEFERRED_STARTER_BEAN_NAME}.
+ * Supervised services must be prototypes: they are managed by {@link SupervisedService}
+ * and exposed for autowiring via {@link SupervisedServiceProxyFactoryBean} facade.
+ * Resolving supervised prototype by its own name is rejected by {@link SupervisedTargetGuard}
+ * registered as {@value #SUPERVISED_TARGET_GUARD_BEAN_NAME}.
+ * Replicated services must be prototypes too: their instances are created by {@link ServiceInstancesFactoryBean}
+ * and served by single adapter.
+ * All created adapters contribute to single {@link ServiceReadiness} registered as {@value #READINESS_BEAN_NAME}
+ * and single {@link ServiceStateRegistry} registered as {@value #STATE_REGISTRY_BEAN_NAME}.
+ * <p>
+ * If index written by {@code gusp-indexer} annotation processor is present in classpath root
+ * only indexed bean definitions of its classes are inspected. Set {@code gusp.index.ignore} system property to ignore index.
+ * <p>
+ * Does nothing if {@code spring.aot.enabled} flag is set: adapters are already registered by AOT generated code.
  *
  * @see io.github.alopukhov.gusp.annotations.EnableGusp
  */
-public class WithSmartLifecyclePostprocessor implements BeanDefinitionRegistryPostProcessor {
+public class WithSmartLifecyclePostprocessor implements BeanDefinitionRegistryPostProcessor, BeanClassLoaderAware {
     private static final String ANNOTATION_NAME = WithSmartLifecycle.class.getName();
     private static final String BEAN_NAME_ATTRIBUTE = "beanName";
     private static final String NON_SINGLETON_MSG = "Non singleton bean [%s] annotated with " + WithSmartLifecycle.class.getSimpleName();
+    private static final String NON_PROTOTYPE_SUPERVISED_MSG = "Supervised bean [%s] must be prototype";
+    private static final String LAZY_SUPERVISED_MSG = "Supervised bean [%s] can not have " + StartMode.LAZY + " start mode";
+    private static final String SERVICE_BEAN_NAME_PROPERTY = "serviceBeanName";
+    private static final String COORDINATOR_PROPERTY = "coordinator";
+    private static final String SHUTDOWN_BUDGET_PROPERTY = "shutdownBudget";
+    private static final String STALL_WATCHDOG_PROPERTY = "stallWatchdog";
+    private static final String DEFERRED_STARTER_PROPERTY = "deferredStarter";
+    private static final String STARTUP_PROFILE_PROPERTY = "startupProfile";
+    private static final String SHARED_SCHEDULER_PROPERTY = "sharedScheduler";
+    private static final String START_MODE_ATTRIBUTE = "startMode";
+    private static final String SUPERVISED_ATTRIBUTE = "supervised";
+    private static final String ADAPTER_FACTORY_METHOD = "forBean";
+    private static final String INSTANCES_ATTRIBUTE = "instances";
+    private static final String NON_PROTOTYPE_REPLICATED_MSG = "Replicated bean [%s] must be prototype";
+    private static final String INVALID_REPLICATED_MSG = "Replicated bean [%s] can not be supervised or have "
+            + StartMode.LAZY + " start mode";
+    private static final String MALFORMED_INSTANCES_MSG = "Bean [%s] has malformed instances spec";
+    private static final List<String> SUPERVISION_ATTRIBUTES = Arrays.asList("restartBackoff", "maxRestartBackoff",
+            "maxRestarts", "restartWindow");
+    private static final String READINESS_PROPERTY = "readiness";
+    private static final String STATE_REGISTRY_PROPERTY = "stateRegistry";
+    private static final String AOT_ENABLED_PROPERTY = "spring.aot.enabled";
     public static final String DEFAULT_BEAN_NAME_SUFFIX = "-service-smart-lifecycle-support";
+    public static final String START_COORDINATOR_BEAN_NAME = "gusp.PhaseStartCoordinator";
+    public static final String DEPENDENCY_COORDINATOR_BEAN_NAME = "gusp.DependencyGraphCoordinator";
+    public static final String SHUTDOWN_BUDGET_BEAN_NAME = "gusp.ShutdownBudget";
+    public static final String STALL_WATCHDOG_BEAN_NAME = "gusp.StallWatchdog";
+    public static final String DEFERRED_STARTER_BEAN_NAME = "gusp.DeferredStarter";
+    public static final String STARTUP_PROFILE_BEAN_NAME = "gusp.StartupProfile";
+    public static final String SHARED_SCHEDULER_BEAN_NAME = "gusp.SharedScheduler";
+    public static final String READINESS_BEAN_NAME = "gusp.ServiceReadiness";
+    public static final String STATE_REGISTRY_BEAN_NAME = "gusp.ServiceStateRegistry";
+    public static final String SUPERVISED_TARGET_GUARD_BEAN_NAME = "gusp.SupervisedTargetGuard";
+
+    private boolean parallelStart;
+    private boolean dependencyOrder;
+    private long shutdownBudget;
+    private long stallThreshold;
+    private int deferredStartThreads = 1;
+    private String startupProfile = "";
+    private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+
+    public boolean isParallelStart() {
+        return parallelStart;
+    }
+
+    /**
+     * Enables parallelStart feature. Default is false.
+     * If enabled {@link PhaseStartCoordinator} is registered as {@value #START_COORDINATOR_BEAN_NAME} and set
+     * for every created adapter.
+     */
+    public void setParallelStart(boolean parallelStart) {
+        this.parallelStart = parallelStart;
+    }
+
+    public boolean isDependencyOrder() {
+        return dependencyOrder;
+    }
+
+    /**
+     * Enables dependencyOrder feature. Default is false. Takes precedence over parallelStart feature.
+     * If enabled {@link DependencyGraphCoordinator} is registered as {@value #DEPENDENCY_COORDINATOR_BEAN_NAME}
+     * and set for every created adapter.
+     */
+    public void setDependencyOrder(boolean dependencyOrder) {
+        this.dependencyOrder = dependencyOrder;
+    }
+
+    public long getShutdownBudget() {
+        return shutdownBudget;
+    }
+
+    /**
+     * Sets time in milliseconds all services together may spend stopping. Zero or negative (default) means no limit.
+     * If set {@link ShutdownBudget} is registered as {@value #SHUTDOWN_BUDGET_BEAN_NAME} and set
+     * for every created adapter.
+     */
+    public void setShutdownBudget(long shutdownBudget) {
+        this.shutdownBudget = shutdownBudget;
+    }
+
+    public long getStallThreshold() {
+        return stallThreshold;
+    }
+
+    /**
+     * Sets time in milliseconds service may spend starting or stopping before it is reported as stuck.
+     * Zero or negative (default) disables reporting.
+     * If set {@link StallWatchdog} is registered as {@value #STALL_WATCHDOG_BEAN_NAME} and set for every created adapter.
+     */
+    public void setStallThreshold(long stallThreshold) {
+        this.stallThreshold = stallThreshold;
+    }
+
+    public int getDeferredStartThreads() {
+        return deferredStartThreads;
+    }
+
+    /**
+     * Sets number of threads starting {@link StartMode#DEFERRED DEFERRED} services. Default is 1.
+     */
+    public void setDeferredStartThreads(int deferredStartThreads) {
+        this.deferredStartThreads = deferredStartThreads;
+    }
+
+    public String getStartupProfile() {
+        return startupProfile;
+    }
+
+    /**
+     * Sets file of startup profile. Empty (default) disables profile.
+     * If set {@link StartupProfile} is registered as {@value #STARTUP_PROFILE_BEAN_NAME} and set for every created adapter
+     * and {@link PhaseStartCoordinator}.
+     */
+    public void setStartupProfile(String startupProfile) {
+        this.startupProfile = startupProfile;
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.beanClassLoader = classLoader;
+    }
 
     @Override
     public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
@@ -42,47 +197,286 @@ public class WithSmartLifecyclePostprocessor implements BeanDefinitionRegistryPo
 
     @Override
     public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+        if (SpringProperties.getFlag(AOT_ENABLED_PROPERTY)) {
+            return;
+        }
+        WithSmartLifecycleIndex index = WithSmartLifecycleIndex.load(beanClassLoader);
         String[] names = registry.getBeanDefinitionNames();
         for (String name : names) {
             BeanDefinition definition = registry.getBeanDefinition(name);
-            processBeanDefinition(name, definition, registry);
+            processBeanDefinition(name, definition, index, registry);
+        }
+    }
+
+    private String registerCoordinatorIfNecessary(BeanDefinitionRegistry registry) {
+        if (dependencyOrder) {
+            return registerIfNecessary(DEPENDENCY_COORDINATOR_BEAN_NAME, DependencyGraphCoordinator.class, registry);
+        }
+        if (parallelStart) {
+            String coordinatorBeanName = registerIfNecessary(START_COORDINATOR_BEAN_NAME, PhaseStartCoordinator.class, registry);
+            String startupProfileBeanName = registerStartupProfileIfNecessary(registry);
+            MutablePropertyValues propertyValues = registry.getBeanDefinition(coordinatorBeanName).getPropertyValues();
+            if (startupProfileBeanName != null && !propertyValues.contains(STARTUP_PROFILE_PROPERTY)) {
+                propertyValues.add(STARTUP_PROFILE_PROPERTY, new RuntimeBeanReference(startupProfileBeanName));
+            }
+            return coordinatorBeanName;
+        }
+        return null;
+    }
+
+    private String registerStartupProfileIfNecessary(BeanDefinitionRegistry registry) {
+        if (startupProfile == null || startupProfile.isEmpty()) {
+            return null;
+        }
+        if (!registry.containsBeanDefinition(STARTUP_PROFILE_BEAN_NAME)) {
+            BeanDefinition beanDefinition = BeanDefinitionBuilder.genericBeanDefinition(StartupProfile.class)
+                    .addConstructorArgValue(startupProfile)
+                    .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                    .getBeanDefinition();
+            registry.registerBeanDefinition(STARTUP_PROFILE_BEAN_NAME, beanDefinition);
+        }
+        return STARTUP_PROFILE_BEAN_NAME;
+    }
+
+    private String registerShutdownBudgetIfNecessary(BeanDefinitionRegistry registry) {
+        if (shutdownBudget <= 0) {
+            return null;
+        }
+        if (!registry.containsBeanDefinition(SHUTDOWN_BUDGET_BEAN_NAME)) {
+            BeanDefinition beanDefinition = BeanDefinitionBuilder.genericBeanDefinition(ShutdownBudget.class)
+                    .addConstructorArgValue(shutdownBudget)
+                    .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                    .getBeanDefinition();
+            registry.registerBeanDefinition(SHUTDOWN_BUDGET_BEAN_NAME, beanDefinition);
         }
+        return SHUTDOWN_BUDGET_BEAN_NAME;
     }
 
-    private void processBeanDefinition(String beanName, BeanDefinition definition, BeanDefinitionRegistry registry) {
+    private String registerStallWatchdogIfNecessary(BeanDefinitionRegistry registry) {
+        if (stallThreshold <= 0) {
+            return null;
+        }
+        if (!registry.containsBeanDefinition(STALL_WATCHDOG_BEAN_NAME)) {
+            BeanDefinition beanDefinition = BeanDefinitionBuilder.genericBeanDefinition(StallWatchdog.class)
+                    .addConstructorArgValue(stallThreshold)
+                    .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                    .getBeanDefinition();
+            registry.registerBeanDefinition(STALL_WATCHDOG_BEAN_NAME, beanDefinition);
+        }
+        return STALL_WATCHDOG_BEAN_NAME;
+    }
+
+    private String registerDeferredStarterIfNecessary(BeanDefinitionRegistry registry) {
+        if (!registry.containsBeanDefinition(DEFERRED_STARTER_BEAN_NAME)) {
+            BeanDefinition beanDefinition = BeanDefinitionBuilder.genericBeanDefinition(DeferredStarter.class)
+                    .addPropertyValue("threads", deferredStartThreads)
+                    .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                    .getBeanDefinition();
+            registry.registerBeanDefinition(DEFERRED_STARTER_BEAN_NAME, beanDefinition);
+        }
+        return DEFERRED_STARTER_BEAN_NAME;
+    }
+
+    private String registerIfNecessary(String beanName, Class<?> beanClass, BeanDefinitionRegistry registry) {
+        if (!registry.containsBeanDefinition(beanName)) {
+            BeanDefinition beanDefinition = BeanDefinitionBuilder.genericBeanDefinition(beanClass)
+                    .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                    .getBeanDefinition();
+            registry.registerBeanDefinition(beanName, beanDefinition);
+        }
+        return beanName;
+    }
+
+    private void processBeanDefinition(String beanName, BeanDefinition definition, WithSmartLifecycleIndex index,
+                                       BeanDefinitionRegistry registry) {
         if (definition instanceof AnnotatedBeanDefinition) {
             AnnotatedBeanDefinition annotatedDefinition = ((AnnotatedBeanDefinition) definition);
+            if (index != null && !index.mayBeAnnotated(annotatedDefinition)) {
+                return;
+            }
             AnnotatedTypeMetadata metadata = annotatedDefinition.getFactoryMethodMetadata() == null?
                     annotatedDefinition.getMetadata() : annotatedDefinition.getFactoryMethodMetadata();
             Map<String, Object> annotationAttributes = metadata.getAnnotationAttributes(ANNOTATION_NAME);
             if (annotationAttributes == null) {
                 return;
             }
-            validateAnnotatedBeanDefinition(beanName, definition);
-            processAnnotationAttributes(beanName, annotationAttributes, registry);
+            validateAnnotatedBeanDefinition(beanName, definition, annotationAttributes);
+            processAnnotationAttributes(beanName, definition, annotationAttributes, registry);
+        }
+    }
+
+    private void validateAnnotatedBeanDefinition(String beanName, BeanDefinition definition,
+                                                 Map<String, Object> annotationAttributes) throws BeansException{
+        if (isReplicated(annotationAttributes)) {
+            validateReplicatedBeanDefinition(beanName, definition, annotationAttributes);
+            return;
+        }
+        if (!isSupervised(annotationAttributes)) {
+            if (!definition.isSingleton()) {
+                throw new BeanDefinitionValidationException(String.format(NON_SINGLETON_MSG, beanName));
+            }
+            return;
+        }
+        if (!definition.isPrototype()) {
+            throw new BeanDefinitionValidationException(String.format(NON_PROTOTYPE_SUPERVISED_MSG, beanName));
+        }
+        if (isLazy(annotationAttributes)) {
+            throw new BeanDefinitionValidationException(String.format(LAZY_SUPERVISED_MSG, beanName));
         }
     }
 
-    private void validateAnnotatedBeanDefinition(String beanName, BeanDefinition definition) throws BeansException{
-        if (!definition.isSingleton()) {
-            throw new BeanDefinitionValidationException(String.format(NON_SINGLETON_MSG, beanName));
+    private static void validateReplicatedBeanDefinition(String beanName, BeanDefinition definition,
+                                                         Map<String, Object> annotationAttributes) {
+        if (!definition.isPrototype()) {
+            throw new BeanDefinitionValidationException(String.format(NON_PROTOTYPE_REPLICATED_MSG, beanName));
+        }
+        if (isSupervised(annotationAttributes) || isLazy(annotationAttributes)) {
+            throw new BeanDefinitionValidationException(String.format(INVALID_REPLICATED_MSG, beanName));
+        }
+        try {
+            ServiceInstancesFactoryBean.parseInstances((String) annotationAttributes.get(INSTANCES_ATTRIBUTE));
+        } catch (IllegalArgumentException e) {
+            throw new BeanDefinitionValidationException(String.format(MALFORMED_INSTANCES_MSG, beanName), e);
         }
     }
 
-    private void processAnnotationAttributes(String beanName, Map<String, Object> annotationAttributes, BeanDefinitionRegistry registry) {
+    private static boolean isReplicated(Map<String, Object> annotationAttributes) {
+        Object instances = annotationAttributes.get(INSTANCES_ATTRIBUTE);
+        return instances != null && !((String) instances).isEmpty();
+    }
+
+    private static boolean isSupervised(Map<String, Object> annotationAttributes) {
+        return Boolean.TRUE.equals(annotationAttributes.get(SUPERVISED_ATTRIBUTE));
+    }
+
+    private static boolean isLazy(Map<String, Object> annotationAttributes) {
+        return StartMode.LAZY.name().equals(String.valueOf(annotationAttributes.get(START_MODE_ATTRIBUTE)));
+    }
+
+    private void processAnnotationAttributes(String beanName, BeanDefinition definition, Map<String, Object> annotationAttributes,
+                                             BeanDefinitionRegistry registry) {
         String suggestedBeanName = (String) annotationAttributes.get(BEAN_NAME_ATTRIBUTE);
         String lifecycleBeanName = suggestedBeanName.isEmpty()? (beanName + DEFAULT_BEAN_NAME_SUFFIX) : suggestedBeanName;
-        BeanDefinition beanDefinition = createBeanDefinition(beanName, annotationAttributes);
+        String targetBeanName = beanName;
+        if (isReplicated(annotationAttributes)) {
+            targetBeanName = registerInstances(beanName, definition, annotationAttributes, registry);
+        } else if (isLazy(annotationAttributes)) {
+            targetBeanName = registerLazyProxy(beanName, definition, lifecycleBeanName, registry);
+        } else if (isSupervised(annotationAttributes)) {
+            targetBeanName = registerSupervisor(beanName, definition, annotationAttributes, registry);
+        }
+        BeanDefinition beanDefinition = createBeanDefinition(targetBeanName, beanName, annotationAttributes);
+        String coordinatorBeanName = registerCoordinatorIfNecessary(registry);
+        if (coordinatorBeanName != null) {
+            beanDefinition.getPropertyValues().add(COORDINATOR_PROPERTY, new RuntimeBeanReference(coordinatorBeanName));
+        }
+        String shutdownBudgetBeanName = registerShutdownBudgetIfNecessary(registry);
+        if (shutdownBudgetBeanName != null) {
+            beanDefinition.getPropertyValues().add(SHUTDOWN_BUDGET_PROPERTY, new RuntimeBeanReference(shutdownBudgetBeanName));
+        }
+        if (StartMode.DEFERRED.name().equals(String.valueOf(annotationAttributes.get(START_MODE_ATTRIBUTE)))) {
+            String deferredStarterBeanName = registerDeferredStarterIfNecessary(registry);
+            beanDefinition.getPropertyValues().add(DEFERRED_STARTER_PROPERTY, new RuntimeBeanReference(deferredStarterBeanName));
+        }
+        String startupProfileBeanName = registerStartupProfileIfNecessary(registry);
+        if (startupProfileBeanName != null) {
+            beanDefinition.getPropertyValues().add(STARTUP_PROFILE_PROPERTY, new RuntimeBeanReference(startupProfileBeanName));
+        }
+        String stallWatchdogBeanName = registerStallWatchdogIfNecessary(registry);
+        if (stallWatchdogBeanName != null) {
+            beanDefinition.getPropertyValues().add(STALL_WATCHDOG_PROPERTY, new RuntimeBeanReference(stallWatchdogBeanName));
+        }
+        if (Boolean.TRUE.equals(annotationAttributes.get(SHARED_SCHEDULER_PROPERTY))) {
+            String sharedSchedulerBeanName = registerIfNecessary(SHARED_SCHEDULER_BEAN_NAME, SharedScheduler.class, registry);
+            beanDefinition.getPropertyValues().add(SHARED_SCHEDULER_PROPERTY, new RuntimeBeanReference(sharedSchedulerBeanName));
+        }
+        String readinessBeanName = registerIfNecessary(READINESS_BEAN_NAME, ServiceReadiness.class, registry);
+        beanDefinition.getPropertyValues().add(READINESS_PROPERTY, new RuntimeBeanReference(readinessBeanName));
+        String stateRegistryBeanName = registerIfNecessary(STATE_REGISTRY_BEAN_NAME, ServiceStateRegistry.class, registry);
+        beanDefinition.getPropertyValues().add(STATE_REGISTRY_PROPERTY, new RuntimeBeanReference(stateRegistryBeanName));
         registry.registerBeanDefinition(lifecycleBeanName, beanDefinition);
     }
 
-    private BeanDefinition createBeanDefinition(String serviceBeanName, Map<String, Object> annotationAttributes) {
+    private String registerLazyProxy(String beanName, BeanDefinition definition, String lifecycleBeanName,
+                                     BeanDefinitionRegistry registry) {
+        String targetBeanName = LazyServiceProxyFactoryBean.TARGET_NAME_PREFIX + beanName;
+        BeanDefinition proxyDefinition = BeanDefinitionBuilder.genericBeanDefinition(LazyServiceProxyFactoryBean.class)
+                .addConstructorArgReference(targetBeanName)
+                .addConstructorArgValue(lifecycleBeanName)
+                .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                .getBeanDefinition();
+        proxyDefinition.setPrimary(definition.isPrimary());
+        proxyDefinition.setAutowireCandidate(definition.isAutowireCandidate());
+        definition.setPrimary(false);
+        definition.setAutowireCandidate(false);
+        registry.removeBeanDefinition(beanName);
+        registry.registerBeanDefinition(targetBeanName, definition);
+        registry.registerBeanDefinition(beanName, proxyDefinition);
+        return targetBeanName;
+    }
+
+    private String registerSupervisor(String beanName, BeanDefinition definition, Map<String, Object> annotationAttributes,
+                                      BeanDefinitionRegistry registry) {
+        //Target keeps its name: @Bean method of configuration class must not collide with facade factory bean
+        String targetBeanName = beanName;
+        String facadeBeanName = SupervisedServiceProxyFactoryBean.FACADE_NAME_PREFIX + beanName;
+        String supervisorBeanName = SupervisedServiceProxyFactoryBean.SUPERVISOR_NAME_PREFIX + beanName;
+        BeanDefinition factoryDefinition = BeanDefinitionBuilder.genericBeanDefinition(ObjectFactoryCreatingFactoryBean.class)
+                .addPropertyValue("targetBeanName", targetBeanName)
+                .getBeanDefinition();
+        BeanDefinitionBuilder supervisorBuilder = BeanDefinitionBuilder.genericBeanDefinition(SupervisedService.class)
+                .addConstructorArgValue(factoryDefinition)
+                .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON);
+        for (String attribute : SUPERVISION_ATTRIBUTES) {
+            supervisorBuilder.addPropertyValue(attribute, annotationAttributes.get(attribute));
+        }
+        BeanDefinition supervisorDefinition = supervisorBuilder.getBeanDefinition();
+        supervisorDefinition.setAutowireCandidate(false);
+        BeanDefinition proxyDefinition = BeanDefinitionBuilder.genericBeanDefinition(SupervisedServiceProxyFactoryBean.class)
+                .addConstructorArgReference(supervisorBeanName)
+                .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                .getBeanDefinition();
+        proxyDefinition.setPrimary(definition.isPrimary());
+        proxyDefinition.setAutowireCandidate(definition.isAutowireCandidate());
+        definition.setPrimary(false);
+        definition.setAutowireCandidate(false);
+        definition.setAttribute(SupervisedTargetGuard.TARGET_ATTRIBUTE, Boolean.TRUE);
+        registerIfNecessary(SUPERVISED_TARGET_GUARD_BEAN_NAME, SupervisedTargetGuard.class, registry);
+        registry.registerBeanDefinition(supervisorBeanName, supervisorDefinition);
+        registry.registerBeanDefinition(facadeBeanName, proxyDefinition);
+        return supervisorBeanName;
+    }
+
+    private String registerInstances(String beanName, BeanDefinition definition, Map<String, Object> annotationAttributes,
+                                     BeanDefinitionRegistry registry) {
+        String instancesBeanName = ServiceInstancesFactoryBean.INSTANCES_NAME_PREFIX + beanName;
+        BeanDefinition factoryDefinition = BeanDefinitionBuilder.genericBeanDefinition(ObjectFactoryCreatingFactoryBean.class)
+                .addPropertyValue("targetBeanName", beanName)
+                .getBeanDefinition();
+        BeanDefinition instancesDefinition = BeanDefinitionBuilder.genericBeanDefinition(ServiceInstancesFactoryBean.class)
+                .addConstructorArgValue(factoryDefinition)
+                .addConstructorArgValue(annotationAttributes.get(INSTANCES_ATTRIBUTE))
+                .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+                .getBeanDefinition();
+        definition.setAutowireCandidate(false);
+        registry.registerBeanDefinition(instancesBeanName, instancesDefinition);
+        return instancesBeanName;
+    }
+
+    private BeanDefinition createBeanDefinition(String targetBeanName, String serviceBeanName, Map<String, Object> annotationAttributes) {
+        //Adapted bean may be service, ServiceManager or group of services: factory method wraps it by its actual type
         BeanDefinitionBuilder beanDefinitionBuilder = BeanDefinitionBuilder.genericBeanDefinition(ServiceSmartLifecycle.class)
-                .addConstructorArgReference(serviceBeanName)
+                .setFactoryMethod(ADAPTER_FACTORY_METHOD)
+                .addConstructorArgReference(targetBeanName)
                 .setScope(ConfigurableBeanFactory.SCOPE_SINGLETON);
         HashMap<String, Object> attributes = new HashMap<>(annotationAttributes);
         attributes.remove(BEAN_NAME_ATTRIBUTE);
+        attributes.remove(SHARED_SCHEDULER_PROPERTY);
+        attributes.remove(SUPERVISED_ATTRIBUTE);
+        attributes.remove(INSTANCES_ATTRIBUTE);
+        attributes.keySet().removeAll(SUPERVISION_ATTRIBUTES);
         attributes.forEach(beanDefinitionBuilder::addPropertyValue);
+        beanDefinitionBuilder.addPropertyValue(SERVICE_BEAN_NAME_PROPERTY, serviceBeanName);
         return beanDefinitionBuilder.getBeanDefinition();
     }
 }
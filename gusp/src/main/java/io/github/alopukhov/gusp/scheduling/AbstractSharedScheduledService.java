@@ -0,0 +1,47 @@
+package io.github.alopukhov.gusp.scheduling;
+
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.Service;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * {@link AbstractScheduledService} that executes {@code startUp()}, {@code runOneIteration()} and {@code shutDown()}
+ * on {@link SharedScheduler} if one is set. Falls back to thread per service otherwise.
+ *
+ * @see io.github.alopukhov.gusp.annotations.WithSmartLifecycle#sharedScheduler()
+ */
+@SuppressWarnings("UnstableApiUsage")
+public abstract class AbstractSharedScheduledService extends AbstractScheduledService implements SharedSchedulerAware {
+    private volatile SharedScheduler sharedScheduler;
+
+    public SharedScheduler getSharedScheduler() {
+        return sharedScheduler;
+    }
+
+    @Override
+    public void setSharedScheduler(SharedScheduler sharedScheduler) {
+        this.sharedScheduler = sharedScheduler;
+    }
+
+    @Override
+    protected ScheduledExecutorService executor() {
+        SharedScheduler sharedScheduler = this.sharedScheduler;
+        if (sharedScheduler == null) {
+            return super.executor();
+        }
+        ScheduledExecutorService executor = sharedScheduler.newExecutor(serviceName());
+        addListener(new Service.Listener() {
+            @Override
+            public void terminated(State from) {
+                executor.shutdown();
+            }
+
+            @Override
+            public void failed(State from, Throwable failure) {
+                executor.shutdown();
+            }
+        }, Runnable::run);
+        return executor;
+    }
+}
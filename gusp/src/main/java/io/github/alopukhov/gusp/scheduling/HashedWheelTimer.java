@@ -0,0 +1,148 @@
+package io.github.alopukhov.gusp.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer wheel with fixed tick. Adding and cancelling timeouts costs O(1) regardless of number of timeouts,
+ * expiration precision is one tick. Buckets are accessed by timer thread only.
+ */
+final class HashedWheelTimer {
+    private final long tickNanos;
+    private final List<Queue<Entry>> wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startedAt = System.nanoTime();
+    private final Thread thread;
+    private volatile boolean stopped;
+    private long tick;
+
+    HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("ticksPerWheel must be positive: " + ticksPerWheel);
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(size, 1);
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.mask = size - 1;
+        this.thread = new Thread(this::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @throws RejectedExecutionException if timer is stopped
+     */
+    void add(Timeout timeout) {
+        if (stopped) {
+            throw new RejectedExecutionException("Timer is stopped");
+        }
+        pending.add(timeout);
+    }
+
+    /**
+     * Stops timer thread and cancels all not expired timeouts.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (Queue<Entry> bucket : wheel) {
+            for (Entry entry : bucket) {
+                entry.timeout.cancel(false);
+            }
+            bucket.clear();
+        }
+        for (Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+            timeout.cancel(false);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            long sleep = startedAt + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            transferPending();
+            expire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        for (Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long ticks = Math.max((timeout.deadline() - startedAt) / tickNanos, tick);
+            long rounds = (ticks - tick) / wheel.size();
+            wheel.get((int) (ticks & mask)).add(new Entry(timeout, rounds));
+        }
+    }
+
+    private static void expire(Queue<Entry> bucket) {
+        for (Iterator<Entry> iterator = bucket.iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.timeout.isCancelled()) {
+                iterator.remove();
+            } else if (entry.rounds <= 0) {
+                iterator.remove();
+                entry.timeout.expire();
+            } else {
+                entry.rounds--;
+            }
+        }
+    }
+
+    interface Timeout {
+        /**
+         * @return {@link System#nanoTime()} based deadline
+         */
+        long deadline();
+
+        boolean isCancelled();
+
+        boolean cancel(boolean mayInterruptIfRunning);
+
+        /**
+         * Called by timer thread when deadline is reached. Must be short.
+         */
+        void expire();
+    }
+
+    private static class Entry {
+        private final Timeout timeout;
+        private long rounds;
+
+        private Entry(Timeout timeout, long rounds) {
+            this.timeout = timeout;
+            this.rounds = rounds;
+        }
+    }
+}
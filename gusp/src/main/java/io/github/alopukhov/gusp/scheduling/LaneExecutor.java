@@ -0,0 +1,222 @@
+package io.github.alopukhov.gusp.scheduling;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executor of one service backed by {@link SharedScheduler}. Tasks are executed one after another in submission
+ * order and at most one worker of shared pool is occupied by a lane at a time.
+ * After each task lane goes to the end of the worker pool queue, so lanes are served round robin.
+ */
+final class LaneExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+    private static final Log LOG = LogFactory.getLog(LaneExecutor.class);
+
+    private final SharedScheduler scheduler;
+    private final String name;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final Set<ScheduledTask<?>> scheduled = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicBoolean active = new AtomicBoolean();
+    private final Runnable turn = this::runNext;
+    private volatile boolean shutdown;
+
+    LaneExecutor(SharedScheduler scheduler, String name) {
+        this.scheduler = scheduler;
+        this.name = name;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        requireNonNull(command, "command");
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor of " + name + " is shut down");
+        }
+        queue.add(command);
+        try {
+            scheduleTurn();
+        } catch (RejectedExecutionException e) {
+            queue.remove(command);
+            throw e;
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return schedule(new ScheduledTask<>(this, Executors.callable(command), deadline(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return schedule(new ScheduledTask<>(this, callable, deadline(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        return schedule(new ScheduledTask<>(this, Executors.callable(command), deadline(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive: " + delay);
+        }
+        return schedule(new ScheduledTask<>(this, Executors.callable(command), deadline(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    /**
+     * Cancels scheduled tasks. Already submitted tasks are still executed.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (ScheduledTask<?> task : scheduled) {
+            task.cancel(false);
+        }
+        signalIfTerminated();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> notExecuted = new ArrayList<>();
+        for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+            notExecuted.add(task);
+        }
+        signalIfTerminated();
+        return notExecuted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && queue.isEmpty() && !active.get();
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "LaneExecutor[" + name + "]";
+    }
+
+    private <V> ScheduledTask<V> schedule(ScheduledTask<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor of " + name + " is shut down");
+        }
+        scheduled.add(task);
+        try {
+            scheduler.timer().add(task);
+        } catch (RejectedExecutionException e) {
+            scheduled.remove(task);
+            throw e;
+        }
+        return task;
+    }
+
+    void expired(ScheduledTask<?> task) {
+        if (shutdown) {
+            task.cancel(false);
+            return;
+        }
+        queue.add(task);
+        try {
+            scheduleTurn();
+        } catch (RejectedExecutionException e) {
+            queue.remove(task);
+            task.cancel(false);
+        }
+    }
+
+    void reschedule(ScheduledTask<?> task) {
+        if (shutdown) {
+            task.cancel(false);
+            return;
+        }
+        try {
+            scheduler.timer().add(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+        }
+    }
+
+    void done(ScheduledTask<?> task) {
+        scheduled.remove(task);
+    }
+
+    private static long deadline(long delay, TimeUnit unit) {
+        return System.nanoTime() + unit.toNanos(Math.max(delay, 0));
+    }
+
+    private void scheduleTurn() {
+        if (!queue.isEmpty() && active.compareAndSet(false, true)) {
+            try {
+                scheduler.workers().execute(turn);
+            } catch (RejectedExecutionException e) {
+                active.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void runNext() {
+        Runnable task = queue.poll();
+        try {
+            if (task != null) {
+                task.run();
+            }
+        } catch (RuntimeException | Error e) {
+            LOG.error("Task of " + name + " failed", e);
+        } finally {
+            active.set(false);
+        }
+        try {
+            scheduleTurn();
+        } catch (RejectedExecutionException e) {
+            discardQueued();
+        }
+        signalIfTerminated();
+    }
+
+    private void discardQueued() {
+        for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
+    private void signalIfTerminated() {
+        if (isTerminated()) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+}
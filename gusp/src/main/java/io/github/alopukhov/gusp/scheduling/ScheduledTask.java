@@ -0,0 +1,63 @@
+package io.github.alopukhov.gusp.scheduling;
+
+import java.util.concurrent.*;
+
+/**
+ * Delayed or periodic task of {@link LaneExecutor}.
+ * Positive period means fixed rate, negative period means fixed delay and zero means one shot task.
+ */
+final class ScheduledTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V>, HashedWheelTimer.Timeout {
+    private final LaneExecutor lane;
+    private final long period;
+    private volatile long deadline;
+
+    ScheduledTask(LaneExecutor lane, Callable<V> callable, long deadline, long period) {
+        super(callable);
+        this.lane = lane;
+        this.deadline = deadline;
+        this.period = period;
+    }
+
+    @Override
+    public long deadline() {
+        return deadline;
+    }
+
+    @Override
+    public void expire() {
+        lane.expired(this);
+    }
+
+    @Override
+    public boolean isPeriodic() {
+        return period != 0;
+    }
+
+    @Override
+    public void run() {
+        if (!isPeriodic()) {
+            super.run();
+        } else if (runAndReset()) {
+            deadline = period > 0 ? deadline + period : System.nanoTime() - period;
+            lane.reschedule(this);
+        }
+    }
+
+    @Override
+    protected void done() {
+        lane.done(this);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other == this) {
+            return 0;
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.alopukhov.gusp.scheduling;
+
+import org.springframework.context.SmartLifecycle;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scheduler shared by many scheduled services instead of thread and timer heap per service.
+ * <p>
+ * Delays are tracked by single hashed timer wheel, so precision is one tick ({@value #DEFAULT_TICK_DURATION} ms
+ * by default). Tasks are executed by bounded pool of workers. Every service gets its own
+ * {@link #newExecutor(String) executor} which runs its tasks one after another and occupies at most one worker
+ * at a time, so one slow service can not starve others.
+ * <p>
+ * Scheduler is started in the very first phase and stopped in the very last one, i.e. after all services
+ * using it are stopped. Tasks are rejected while scheduler is not running.
+ * Settings are applied on next start.
+ *
+ * @see AbstractSharedScheduledService
+ * @see io.github.alopukhov.gusp.annotations.WithSmartLifecycle#sharedScheduler()
+ */
+public class SharedScheduler implements SmartLifecycle {
+    public static final long DEFAULT_TICK_DURATION = 10;
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private long tickDuration = DEFAULT_TICK_DURATION;
+    private int ticksPerWheel = DEFAULT_TICKS_PER_WHEEL;
+    private int poolSize = Runtime.getRuntime().availableProcessors();
+    private String threadNamePrefix = "gusp-shared-scheduler";
+    private volatile HashedWheelTimer timer;
+    private volatile ThreadPoolExecutor workers;
+
+    /**
+     * Creates executor for tasks of one service.
+     * Executor must be shut down when service no longer needs it.
+     *
+     * @param name name of service used in logs
+     */
+    public ScheduledExecutorService newExecutor(String name) {
+        return new LaneExecutor(this, requireNonNull(name, "name"));
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Sets timer wheel tick duration in milliseconds. Default is {@value #DEFAULT_TICK_DURATION}.
+     */
+    public void setTickDuration(long tickDuration) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        this.tickDuration = tickDuration;
+    }
+
+    public int getTicksPerWheel() {
+        return ticksPerWheel;
+    }
+
+    /**
+     * Sets number of timer wheel buckets. Rounded up to power of two. Default is {@value #DEFAULT_TICKS_PER_WHEEL}.
+     */
+    public void setTicksPerWheel(int ticksPerWheel) {
+        if (ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("ticksPerWheel must be positive: " + ticksPerWheel);
+        }
+        this.ticksPerWheel = ticksPerWheel;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Sets number of worker threads. Default is number of available processors.
+     */
+    public void setPoolSize(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive: " + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = requireNonNull(threadNamePrefix, "threadNamePrefix");
+    }
+
+    @Override
+    public synchronized void start() {
+        if (workers != null) {
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, threadNamePrefix + "-" + counter.incrementAndGet()));
+        timer = new HashedWheelTimer(threadNamePrefix + "-timer", tickDuration, TimeUnit.MILLISECONDS, ticksPerWheel);
+    }
+
+    /**
+     * Stops timer and worker threads. Tasks that are not expired yet are cancelled.
+     * Does not wait for already running tasks.
+     */
+    @Override
+    public synchronized void stop() {
+        if (workers == null) {
+            return;
+        }
+        timer.stop();
+        workers.shutdown();
+        timer = null;
+        workers = null;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return workers != null;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    HashedWheelTimer timer() {
+        HashedWheelTimer timer = this.timer;
+        if (timer == null) {
+            throw new RejectedExecutionException("Shared scheduler is not running");
+        }
+        return timer;
+    }
+
+    Executor workers() {
+        Executor workers = this.workers;
+        if (workers == null) {
+            throw new RejectedExecutionException("Shared scheduler is not running");
+        }
+        return workers;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.alopukhov.gusp.scheduling;
+
+/**
+ * Service able to run its tasks on {@link SharedScheduler}.
+ *
+ * @see AbstractSharedScheduledService
+ */
+public interface SharedSchedulerAware {
+    /**
+     * Called before service is started.
+     */
+    void setSharedScheduler(SharedScheduler sharedScheduler);
+}
@@ -1,10 +1,19 @@
 package io.github.alopukhov.gusp.annotations;
 
+import io.github.alopukhov.gusp.lifecycle.DummyService;
+import io.github.alopukhov.gusp.lifecycle.PhaseStartCoordinator;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.ShutdownBudget;
 import io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextStartedEvent;
 
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 class EnableGuspSpringTest {
@@ -15,8 +24,55 @@ class EnableGuspSpringTest {
         assertNotNull(bean);
     }
 
+    @Test
+    void enableGuspAttributesArePropagatedToPostprocessor() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(ParallelStartConf.class);
+        WithSmartLifecyclePostprocessor postprocessor = context.getBean(WithSmartLifecyclePostprocessor.class);
+        assertTrue(postprocessor.isParallelStart());
+        assertThat(context.getBean(ServiceSmartLifecycle.class).getCoordinator())
+                .isSameAs(context.getBean(PhaseStartCoordinator.class));
+    }
+
+    @Test
+    void shutdownBudgetIsSharedByAdapters() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(ShutdownBudgetConf.class);
+        assertThat(context.getBean(ServiceSmartLifecycle.class).getShutdownBudget())
+                .isSameAs(context.getBean(ShutdownBudget.class));
+    }
+
+    @Test
+    void shutdownBudgetIsRestoredOnContextStart() throws Exception {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(ShutdownBudgetConf.class);
+        ShutdownBudget budget = context.getBean(ShutdownBudget.class);
+        budget.remainingNanos();
+        Thread.sleep(5);
+        assertThat(budget.remainingNanos()).isLessThan(TimeUnit.MILLISECONDS.toNanos(1000));
+        context.publishEvent(new ContextStartedEvent(context));
+        assertThat(budget.remainingNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
     @Configuration
     @EnableGusp
     public static class Conf {
     }
-}
\ No newline at end of file
+
+    @Configuration
+    @EnableGusp(shutdownBudget = 1000)
+    public static class ShutdownBudgetConf {
+        @Bean
+        @WithSmartLifecycle
+        public DummyService dummyService() {
+            return new DummyService();
+        }
+    }
+
+    @Configuration
+    @EnableGusp(parallelStart = true)
+    public static class ParallelStartConf {
+        @Bean
+        @WithSmartLifecycle
+        public DummyService dummyService() {
+            return new DummyService();
+        }
+    }
+}
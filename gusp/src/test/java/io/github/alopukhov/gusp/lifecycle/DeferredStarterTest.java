@@ -0,0 +1,104 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import static io.github.alopukhov.gusp.lifecycle.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("UnstableApiUsage")
+class DeferredStarterTest {
+    private static final List<String> STARTED = new CopyOnWriteArrayList<>();
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    @Test
+    void testDeferredServicesStartAfterRefreshInPriorityOrder() throws Exception {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        RecordingService low = context.getBean("low", RecordingService.class);
+        RecordingService high = context.getBean("high", RecordingService.class);
+        RecordingService manual = context.getBean("manual", RecordingService.class);
+        // expect
+        assertThat(context.getBean(DummyService.class).state()).isEqualTo(State.RUNNING);
+        assertThat(context.getBean(ServiceReadiness.class).isReady()).isTrue();
+        await(() -> high.state() == State.STARTING);
+        assertThat(low.state()).isEqualTo(State.NEW);
+        // when
+        RELEASE.countDown();
+        // then
+        await(() -> low.state() == State.RUNNING);
+        assertThat(STARTED).containsExactly("high", "low");
+        assertThat(high.thread).startsWith("gusp-deferred-start-");
+        assertThat(manual.state()).isEqualTo(State.NEW);
+        // when
+        context.close();
+        // then
+        assertThat(low.state()).isEqualTo(State.TERMINATED);
+        assertThat(high.state()).isEqualTo(State.TERMINATED);
+    }
+
+    public static class RecordingService extends AbstractIdleService {
+        private final String name;
+        private volatile String thread;
+
+        public RecordingService(String name) {
+            this.name = name;
+        }
+
+        @Override
+        protected Executor executor() {
+            //Called by thread requesting start
+            thread = Thread.currentThread().getName();
+            return command -> new Thread(command).start();
+        }
+
+        @Override
+        protected void startUp() throws Exception {
+            RELEASE.await();
+            STARTED.add(name);
+        }
+
+        @Override
+        protected void shutDown() {
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle
+        public DummyService eager() {
+            return new DummyService();
+        }
+
+        @Bean
+        @WithSmartLifecycle(startMode = StartMode.DEFERRED, priority = 1)
+        public RecordingService low() {
+            return new RecordingService("low");
+        }
+
+        @Bean
+        @WithSmartLifecycle(startMode = StartMode.DEFERRED, priority = 10)
+        public RecordingService high() {
+            return new RecordingService("high");
+        }
+
+        @Bean
+        @WithSmartLifecycle(startMode = StartMode.DEFERRED, autoStartup = false)
+        public RecordingService manual() {
+            return new RecordingService("manual");
+        }
+    }
+}
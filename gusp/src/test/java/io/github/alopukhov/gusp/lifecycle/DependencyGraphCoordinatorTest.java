@@ -0,0 +1,289 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SuppressWarnings("UnstableApiUsage")
+class DependencyGraphCoordinatorTest {
+    private final DependencyGraphCoordinator coordinator = new DependencyGraphCoordinator();
+
+    @Test
+    void start_startsServiceAfterItsDependencies() throws Exception {
+        // given
+        ManualStartTestService first = new ManualStartTestService();
+        ManualStartTestService second = new ManualStartTestService();
+        ManualStartTestService independent = new ManualStartTestService();
+        createLifecycle("first", first);
+        ServiceSmartLifecycle secondLifecycle = createLifecycle("second", second, "first");
+        createLifecycle("independent", independent);
+        // when
+        CompletableFuture<Void> start = CompletableFuture.runAsync(secondLifecycle::start);
+        awaitLeftState(independent, State.NEW);
+        // then
+        assertThat(first.state()).isEqualTo(State.STARTING);
+        assertThat(independent.state()).isEqualTo(State.STARTING);
+        assertThat(second.state()).isEqualTo(State.NEW);
+        // when
+        first.externalStarted();
+        // then
+        assertThat(second.state()).isEqualTo(State.STARTING);
+        assertThat(start).isNotDone();
+        // when
+        second.externalStarted();
+        // then
+        assertThat(start).isNotDone();
+        // when
+        independent.externalStarted();
+        // then
+        start.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givenFailedDependency_start_throwsISE() throws Exception {
+        // given
+        ManualStartTestService first = new ManualStartTestService();
+        ManualStartTestService second = new ManualStartTestService();
+        createLifecycle("first", first);
+        ServiceSmartLifecycle secondLifecycle = createLifecycle("second", second, "first");
+        CompletableFuture<Void> start = CompletableFuture.runAsync(secondLifecycle::start);
+        awaitLeftState(first, State.NEW);
+        RuntimeException cause = new RuntimeException("Test failure");
+        // when
+        first.externalFail(cause);
+        // then
+        Throwable throwable = catchThrowable(() -> start.get(1, TimeUnit.SECONDS));
+        assertThat(throwable).hasRootCause(cause);
+        assertThat(second.state()).isEqualTo(State.NEW);
+    }
+
+    @Test
+    void givenCyclicDependencies_start_throwsISE() {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle("first", new DummyService(), "second");
+        createLifecycle("second", new DummyService(), "first");
+        // when
+        Throwable throwable = catchThrowable(lifecycle::start);
+        // then
+        assertThat(throwable)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Cyclic")
+                .hasMessageContaining("[first] -> [second]");
+    }
+
+    @Test
+    void givenUnknownDependency_start_throwsISE() {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle("first", new DummyService(), "unknown");
+        // when
+        Throwable throwable = catchThrowable(lifecycle::start);
+        // then
+        assertThat(throwable)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unknown");
+    }
+
+    @Test
+    void stop_stopsServiceAfterItsDependents() {
+        // given
+        AtomicInteger counter = new AtomicInteger();
+        ManualTestService first = new ManualTestService();
+        ManualTestService second = new ManualTestService();
+        ServiceSmartLifecycle firstLifecycle = createLifecycle("first", first);
+        createLifecycle("second", second, "first");
+        firstLifecycle.start();
+        // when
+        firstLifecycle.stop(counter::incrementAndGet);
+        // then
+        assertThat(second.state()).isEqualTo(State.STOPPING);
+        assertThat(first.state()).isEqualTo(State.RUNNING);
+        // when
+        second.externalStop();
+        // then
+        assertThat(first.state()).isEqualTo(State.STOPPING);
+        assertThat(counter).hasValue(0);
+        // when
+        first.externalStop();
+        // then
+        assertThat(counter).hasValue(1);
+    }
+
+    @Test
+    void givenAsyncStartLifecycleStartedFirst_start_awaitsSyncServices() throws Exception {
+        // given
+        ManualStartTestService async = new ManualStartTestService();
+        ManualStartTestService sync = new ManualStartTestService();
+        ServiceSmartLifecycle asyncLifecycle = createLifecycle("async", async);
+        asyncLifecycle.setAsyncStart(true);
+        createLifecycle("sync", sync, "async");
+        // when
+        CompletableFuture<Void> start = CompletableFuture.runAsync(asyncLifecycle::start);
+        awaitLeftState(async, State.NEW);
+        // then
+        assertThat(start).isNotDone();
+        // when
+        async.externalStarted();
+        sync.externalStarted();
+        // then
+        start.get(1, TimeUnit.SECONDS);
+        assertThat(sync.state()).isEqualTo(State.RUNNING);
+    }
+
+    @Test
+    void stop_reusesStopGraphForSubsequentMembers() {
+        // given
+        AtomicInteger counter = new AtomicInteger();
+        ManualTestService first = new ManualTestService();
+        ManualTestService second = new ManualTestService();
+        ServiceSmartLifecycle firstLifecycle = createLifecycle("first", first);
+        ServiceSmartLifecycle secondLifecycle = createLifecycle("second", second, "first");
+        firstLifecycle.start();
+        // when
+        firstLifecycle.stop(counter::incrementAndGet);
+        secondLifecycle.stop(counter::incrementAndGet);
+        firstLifecycle.stop(counter::incrementAndGet);
+        // then
+        assertThat(first.state()).isEqualTo(State.RUNNING);
+        // when
+        second.externalStop();
+        first.externalStop();
+        // then
+        assertThat(counter).hasValue(3);
+        assertThat(first.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void syncServicesAreRunningAfterRefresh() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(SlowConf.class);
+        // then
+        assertThat(context.getBeansOfType(ServiceSmartLifecycle.class).values())
+                .hasSize(2)
+                .allMatch(lifecycle -> lifecycle.getService().state() == State.RUNNING);
+        context.close();
+    }
+
+    @Test
+    void springBeanDependenciesAreRespected() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        List<String> events = context.getBean(Conf.class).events();
+        // then
+        assertThat(events).containsExactly("first started", "second started");
+        // when
+        context.close();
+        // then
+        assertThat(events).containsSubsequence("second stopped", "first stopped");
+    }
+
+    private static void awaitLeftState(Service service, State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (service.state() == state && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private ServiceSmartLifecycle createLifecycle(String name, Service service, String... after) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setServiceBeanName(name);
+        lifecycle.setAfter(after);
+        lifecycle.setCoordinator(coordinator);
+        return lifecycle;
+    }
+
+    @Configuration
+    @EnableGusp(dependencyOrder = true)
+    public static class Conf {
+        @Bean
+        public CopyOnWriteArrayList<String> events() {
+            return new CopyOnWriteArrayList<>();
+        }
+
+        @Bean
+        @WithSmartLifecycle(phase = 1)
+        public Service first(CopyOnWriteArrayList<String> events) {
+            return new RecordingService("first", events);
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public Service second(CopyOnWriteArrayList<String> events, @Qualifier("first") Service first) {
+            return new RecordingService("second", events);
+        }
+    }
+
+    @Configuration
+    @EnableGusp(dependencyOrder = true)
+    public static class SlowConf {
+        @Bean
+        @WithSmartLifecycle
+        public Service first() {
+            return new SlowStartService();
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public Service second() {
+            return new SlowStartService();
+        }
+    }
+
+    private static class SlowStartService extends AbstractService {
+        @Override
+        protected void doStart() {
+            Thread thread = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                notifyStarted();
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        protected void doStop() {
+            notifyStopped();
+        }
+    }
+
+    private static class RecordingService extends AbstractService {
+        private final String name;
+        private final List<String> events;
+
+        private RecordingService(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        protected void doStart() {
+            events.add(name + " started");
+            notifyStarted();
+        }
+
+        @Override
+        protected void doStop() {
+            events.add(name + " stopped");
+            notifyStopped();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("UnstableApiUsage")
+class DrainableServiceTest {
+    @Test
+    void testStopDrainsAcceptedWork() throws Exception {
+        // given
+        QueueService service = new QueueService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.start();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger processed = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            service.submit(() -> {
+                awaitUninterruptibly(release);
+                processed.incrementAndGet();
+            });
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        // when
+        lifecycle.stop(stopped::countDown);
+        // then
+        assertThat(service.submit(processed::incrementAndGet)).isFalse();
+        assertThat(stopped.await(50, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(service.state()).isEqualTo(State.RUNNING);
+        // when
+        release.countDown();
+        // then
+        assertThat(stopped.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed.get()).isEqualTo(3);
+        assertThat(service.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testDrainTimeoutEscalates() throws Exception {
+        // given
+        QueueService service = new QueueService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setDrainTimeout(50);
+        lifecycle.start();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        service.submit(() -> {
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        // when
+        lifecycle.stop();
+        // then
+        assertThat(interrupted.getCount()).isZero();
+        assertThat(service.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testDrainTimeoutAttribute() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        // when
+        ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+        // then
+        assertThat(lifecycle.getDrainTimeout()).isEqualTo(1000);
+        context.close();
+        assertThat(lifecycle.getService().state()).isEqualTo(State.TERMINATED);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class QueueService extends AbstractDrainableExecutionThreadService {
+        private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        private final AtomicInteger remaining = new AtomicInteger();
+
+        boolean submit(Runnable task) {
+            if (isIntakeStopped()) {
+                return false;
+            }
+            remaining.incrementAndGet();
+            return queue.add(task);
+        }
+
+        @Override
+        public long remainingWork() {
+            return remaining.get();
+        }
+
+        @Override
+        protected void run() throws Exception {
+            while (isRunning()) {
+                Runnable task = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    try {
+                        task.run();
+                    } finally {
+                        remaining.decrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle(drainTimeout = 1000)
+        public QueueService queueService() {
+            return new QueueService();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.lifecycle.SupervisedServiceTest.CounterService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.alopukhov.gusp.lifecycle.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("UnstableApiUsage")
+class ElasticReplicaSetTest {
+    private final List<CounterService> created = new CopyOnWriteArrayList<>();
+    private volatile double load;
+
+    @Test
+    void testStartsMinReplicas() throws Exception {
+        // given
+        ElasticReplicaSet replicaSet = createReplicaSet();
+        replicaSet.setMinReplicas(2);
+        // when
+        replicaSet.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        // then
+        assertThat(replicaSet.getReplicas()).hasSize(2).allMatch(replica -> replica.state() == State.RUNNING);
+        // when
+        replicaSet.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        // then
+        assertThat(created).allMatch(replica -> replica.state() == State.TERMINATED);
+    }
+
+    @Test
+    void testScalesBetweenMinAndMaxReplicas() throws Exception {
+        // given
+        ElasticReplicaSet replicaSet = createReplicaSet();
+        replicaSet.setMaxReplicas(3);
+        replicaSet.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        // when
+        load = 1.0;
+        // then
+        await(() -> replicaSet.getReplicas().size() == 3);
+        Thread.sleep(50);
+        assertThat(created).hasSize(3).allMatch(replica -> replica.state() == State.RUNNING);
+        // when
+        load = 0.0;
+        // then
+        await(() -> replicaSet.getReplicas().size() == 1);
+        await(() -> created.get(1).state() == State.TERMINATED && created.get(2).state() == State.TERMINATED);
+        assertThat(replicaSet.getReplicas()).containsExactly(created.get(0));
+        replicaSet.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testLoadBetweenThresholdsKeepsReplicas() throws Exception {
+        // given
+        ElasticReplicaSet replicaSet = createReplicaSet();
+        replicaSet.setMinReplicas(2);
+        replicaSet.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        // when
+        load = 0.5;
+        Thread.sleep(100);
+        // then
+        assertThat(created).hasSize(2);
+        replicaSet.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testCooldownLimitsScalingRate() throws Exception {
+        // given
+        ElasticReplicaSet replicaSet = createReplicaSet();
+        replicaSet.setCooldown(200);
+        replicaSet.setMaxReplicas(3);
+        replicaSet.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        load = 1.0;
+        // when
+        await(() -> created.size() == 2);
+        Thread.sleep(100);
+        // then
+        assertThat(created).hasSize(2);
+        await(() -> created.size() == 3);
+        replicaSet.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRetiredReplicaIsDrained() throws Exception {
+        // given
+        List<DrainableReplica> replicas = new ArrayList<>();
+        ElasticReplicaSet replicaSet = new ElasticReplicaSet(() -> {
+            DrainableReplica replica = new DrainableReplica();
+            replicas.add(replica);
+            return replica;
+        }, active -> load);
+        replicaSet.setCheckInterval(5);
+        replicaSet.setCooldown(0);
+        replicaSet.setMaxReplicas(2);
+        replicaSet.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        load = 1.0;
+        await(() -> replicaSet.getReplicas().size() == 2 && replicas.get(1).state() == State.RUNNING);
+        load = 0.5;
+        Thread.sleep(20);
+        DrainableReplica retired = replicas.get(1);
+        retired.remaining = 1;
+        // when
+        load = 0.0;
+        // then
+        await(() -> retired.intakeStopped);
+        Thread.sleep(50);
+        assertThat(retired.state()).isEqualTo(State.RUNNING);
+        // when
+        retired.remaining = 0;
+        // then
+        await(() -> retired.state() == State.TERMINATED);
+        replicaSet.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testReplicaFailureFailsReplicaSet() throws Exception {
+        // given
+        ElasticReplicaSet replicaSet = createReplicaSet();
+        replicaSet.setMinReplicas(2);
+        replicaSet.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        Exception cause = new Exception("fail");
+        // when
+        created.get(0).fail(cause);
+        // then
+        await(() -> replicaSet.state() == State.FAILED);
+        assertThat(replicaSet.failureCause()).isSameAs(cause);
+        await(() -> created.get(1).state() == State.TERMINATED);
+    }
+
+    @Test
+    void testReplicaTerminatedWhileStopIsPendingFailsReplicaSet() throws Exception {
+        // given
+        ManualStartTestService slow = new ManualStartTestService();
+        List<Service> replicas = Arrays.asList(new DummyService(), slow);
+        AtomicInteger index = new AtomicInteger();
+        ElasticReplicaSet replicaSet = new ElasticReplicaSet(() -> replicas.get(index.getAndIncrement()), active -> 0.5);
+        replicaSet.setMinReplicas(2);
+        replicaSet.setMaxReplicas(2);
+        replicaSet.startAsync();
+        await(() -> slow.state() == State.STARTING);
+        CountDownLatch release = new CountDownLatch(1);
+        LifecycleTimer.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // when
+        replicaSet.stopAsync();
+        slow.externalStarted();
+        slow.stopAsync();
+        release.countDown();
+        // then
+        await(() -> replicaSet.state() == State.FAILED);
+        assertThat(replicaSet.failureCause()).hasMessageContaining("terminated before");
+    }
+
+    @Test
+    void testSlowFactoryDoesNotBlockLifecycleTimer() throws Exception {
+        // given
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ElasticReplicaSet replicaSet = new ElasticReplicaSet(() -> {
+            creating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            CounterService replica = new CounterService();
+            created.add(replica);
+            return replica;
+        }, active -> 0.5);
+        replicaSet.startAsync();
+        assertThat(creating.await(1, TimeUnit.SECONDS)).isTrue();
+        CountDownLatch timerTask = new CountDownLatch(1);
+        // when
+        LifecycleTimer.execute(timerTask::countDown);
+        // then
+        assertThat(timerTask.await(1, TimeUnit.SECONDS)).isTrue();
+        // when
+        release.countDown();
+        // then
+        replicaSet.awaitRunning(1, TimeUnit.SECONDS);
+        assertThat(replicaSet.getReplicas()).containsExactlyElementsOf(created);
+        replicaSet.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testInvalidSettingsFailStart() {
+        // given
+        ElasticReplicaSet replicaSet = createReplicaSet();
+        replicaSet.setScaleDownThreshold(0.9);
+        // when
+        Throwable thrown = catchStartFailure(replicaSet);
+        // then
+        assertThat(thrown).isInstanceOf(IllegalStateException.class);
+        assertThat(replicaSet.state()).isEqualTo(State.FAILED);
+        assertThat(created).isEmpty();
+    }
+
+    @Test
+    void testQueueDepthSignal() {
+        // given
+        List<Integer> queue = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        LoadSignal signal = LoadSignal.queueDepth(queue, 2);
+        // expect
+        assertThat(signal.load(3)).isEqualTo(1.0);
+        assertThat(signal.load(6)).isEqualTo(0.5);
+    }
+
+    private ElasticReplicaSet createReplicaSet() {
+        ElasticReplicaSet replicaSet = new ElasticReplicaSet(() -> {
+            CounterService replica = new CounterService();
+            created.add(replica);
+            return replica;
+        }, replicas -> load);
+        replicaSet.setCheckInterval(5);
+        replicaSet.setCooldown(0);
+        replicaSet.setMaxReplicas(4);
+        load = 0.5;
+        return replicaSet;
+    }
+
+    private static Throwable catchStartFailure(Service service) {
+        try {
+            service.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static class DrainableReplica extends DummyService implements Drainable {
+        private volatile boolean intakeStopped;
+        private volatile long remaining;
+
+        @Override
+        public void stopIntake() {
+            intakeStopped = true;
+        }
+
+        @Override
+        public long remainingWork() {
+            return remaining;
+        }
+
+        @Override
+        public void escalate() {
+        }
+    }
+}
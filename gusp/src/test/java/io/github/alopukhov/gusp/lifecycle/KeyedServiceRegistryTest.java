@@ -0,0 +1,255 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.SupervisedServiceTest.CounterService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionValidationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.github.alopukhov.gusp.lifecycle.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SuppressWarnings("UnstableApiUsage")
+class KeyedServiceRegistryTest {
+    private final Map<String, List<CounterService>> created = new ConcurrentHashMap<>();
+
+    @Test
+    void testStartsSingleInstancePerKey() throws Exception {
+        // given
+        KeyedServiceRegistry<String, CounterService> registry = createRegistry();
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<CounterService>> futures = new ArrayList<>();
+        // when
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                latch.await();
+                return registry.get("acme");
+            }));
+        }
+        latch.countDown();
+        // then
+        for (Future<CounterService> future : futures) {
+            assertThat(future.get(1, TimeUnit.SECONDS)).isSameAs(created("acme").get(0));
+        }
+        assertThat(created("acme")).hasSize(1).allMatch(service -> service.state() == State.RUNNING);
+        assertThat(registry.getKeys()).containsExactly("acme");
+        executor.shutdown();
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedInstancesBeyondMaxSize() throws Exception {
+        // given
+        KeyedServiceRegistry<String, CounterService> registry = createRegistry();
+        registry.setMaxSize(2);
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        registry.get("first");
+        registry.get("second");
+        registry.get("first");
+        // when
+        registry.get("third");
+        // then
+        await(() -> registry.size() == 2);
+        await(() -> created("second").get(0).state() == State.TERMINATED);
+        assertThat(registry.getKeys()).containsExactlyInAnyOrder("first", "third");
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testEvictsIdleInstances() throws Exception {
+        // given
+        KeyedServiceRegistry<String, CounterService> registry = createRegistry();
+        registry.setIdleTimeout(50);
+        registry.setCheckInterval(10);
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        CounterService idle = registry.get("idle");
+        // when
+        await(() -> registry.size() == 0);
+        // then
+        await(() -> idle.state() == State.TERMINATED);
+        assertThat(registry.get("idle")).isNotSameAs(idle);
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFailedInstanceIsRecreatedOnNextAccess() throws Exception {
+        // given
+        KeyedServiceRegistry<String, CounterService> registry = createRegistry();
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        CounterService first = registry.get("acme");
+        // when
+        first.fail(new Exception("fail"));
+        CounterService second = registry.get("acme");
+        // then
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.state()).isEqualTo(State.RUNNING);
+        assertThat(registry.state()).isEqualTo(State.RUNNING);
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testInstanceWhichFailsToStartIsReported() throws Exception {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+        KeyedServiceRegistry<String, CounterService> registry = new KeyedServiceRegistry<>(key -> {
+            attempts.incrementAndGet();
+            return new FailingService();
+        });
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        // when
+        Throwable throwable = catchThrowable(() -> registry.get("acme"));
+        // then
+        assertThat(throwable)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("failed to start");
+        assertThat(attempts).hasValue(1);
+        // when
+        catchThrowable(() -> registry.get("acme"));
+        // then
+        assertThat(attempts).hasValue(2);
+        await(() -> registry.size() == 0);
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testFactoryMayUseRegistry() throws Exception {
+        // given
+        AtomicReference<KeyedServiceRegistry<String, CounterService>> reference = new AtomicReference<>();
+        KeyedServiceRegistry<String, CounterService> registry = new KeyedServiceRegistry<>(key -> {
+            if (!key.equals("parent")) {
+                reference.get().get("parent");
+            }
+            CounterService service = new CounterService();
+            created(key).add(service);
+            return service;
+        });
+        reference.set(registry);
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        // when
+        CounterService child = registry.get("child");
+        // then
+        assertThat(child.state()).isEqualTo(State.RUNNING);
+        assertThat(registry.getKeys()).containsExactlyInAnyOrder("parent", "child");
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStopStopsAllInstances() throws Exception {
+        // given
+        KeyedServiceRegistry<String, CounterService> registry = createRegistry();
+        registry.startAsync().awaitRunning(1, TimeUnit.SECONDS);
+        registry.get("first");
+        registry.get("second");
+        // when
+        registry.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        // then
+        assertThat(created.values()).allSatisfy(services -> assertThat(services)
+                .allMatch(service -> service.state() == State.TERMINATED));
+        assertThat(registry.size()).isZero();
+        assertThatThrownBy(() -> registry.get("first")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testCreatesInstancesFromPrototype() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        @SuppressWarnings("unchecked")
+        KeyedServiceRegistry<String, TenantService> registry = context.getBean(KeyedServiceRegistry.class);
+        // when
+        TenantService acme = registry.get("acme");
+        // then
+        assertThat(acme.tenant).isEqualTo("acme");
+        assertThat(acme.state()).isEqualTo(State.RUNNING);
+        assertThat(registry.get("acme")).isSameAs(acme);
+        // when
+        context.close();
+        // then
+        assertThat(acme.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testSingletonPrototypeBeanIsRejected() {
+        assertThatThrownBy(() -> new AnnotationConfigApplicationContext(SingletonConf.class))
+                .hasRootCauseInstanceOf(BeanDefinitionValidationException.class);
+    }
+
+    private KeyedServiceRegistry<String, CounterService> createRegistry() {
+        return new KeyedServiceRegistry<>(key -> {
+            CounterService service = new CounterService();
+            created(key).add(service);
+            return service;
+        });
+    }
+
+    private List<CounterService> created(String key) {
+        return created.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+    }
+
+    public static class FailingService extends CounterService {
+        @Override
+        protected void doStart() {
+            throw new IllegalStateException("Test failure");
+        }
+    }
+
+    public static class TenantService extends CounterService {
+        private final String tenant;
+
+        public TenantService(String tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @Scope("prototype")
+        public TenantService tenant(String tenant) {
+            return new TenantService(tenant);
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public KeyedServiceRegistry<String, TenantService> tenants() {
+            return new KeyedServiceRegistry<>("tenant");
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class SingletonConf {
+        @Bean
+        public TenantService tenant() {
+            return new TenantService("acme");
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public KeyedServiceRegistry<String, TenantService> tenants() {
+            return new KeyedServiceRegistry<>("tenant");
+        }
+    }
+}
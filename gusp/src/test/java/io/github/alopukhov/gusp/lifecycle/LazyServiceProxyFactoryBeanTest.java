@@ -0,0 +1,135 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.alopukhov.gusp.lifecycle.LazyServiceProxyFactoryBean.TARGET_NAME_PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("UnstableApiUsage")
+class LazyServiceProxyFactoryBeanTest {
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void testLazyServiceIsNotStartedOnRefresh() {
+        // given
+        GreeterService target = context.getBean(TARGET_NAME_PREFIX + "greeter", GreeterService.class);
+        ServiceSmartLifecycle lifecycle = context.getBean("greeter" + WithSmartLifecyclePostprocessor.DEFAULT_BEAN_NAME_SUFFIX,
+                ServiceSmartLifecycle.class);
+        // expect
+        assertThat(lifecycle.getStartMode()).isEqualTo(StartMode.LAZY);
+        assertThat(lifecycle.isAutoStartup()).isFalse();
+        assertThat(lifecycle.getService()).isSameAs(target);
+        assertThat(target.state()).isEqualTo(State.NEW);
+        assertThat(context.getBean(Client.class).greeter).isSameAs(context.getBean("greeter"));
+    }
+
+    @Test
+    void testFirstCallStartsService() {
+        // given
+        Greeter greeter = context.getBean(Client.class).greeter;
+        GreeterService target = context.getBean(TARGET_NAME_PREFIX + "greeter", GreeterService.class);
+        // when
+        String greeting = greeter.greet("world");
+        greeter.greet("again");
+        // then
+        assertThat(greeting).isEqualTo("Hello, world");
+        assertThat(target.state()).isEqualTo(State.RUNNING);
+        assertThat(target.starts.get()).isEqualTo(1);
+        // when
+        context.close();
+        // then
+        assertThat(target.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testServiceMethodsDoNotStartService() {
+        // given
+        Service proxy = context.getBean("greeter", Service.class);
+        // expect
+        assertThat(proxy.state()).isEqualTo(State.NEW);
+        assertThat(proxy.toString()).startsWith("Lazy proxy of");
+    }
+
+    @Test
+    void testFailedStartIsPropagatedToCaller() {
+        // given
+        Greeter failing = context.getBean("failing", Greeter.class);
+        // expect
+        assertThatThrownBy(() -> failing.greet("world")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> failing.greet("world")).isInstanceOf(IllegalStateException.class);
+    }
+
+    public interface Greeter {
+        String greet(String name);
+    }
+
+    public static class GreeterService extends AbstractIdleService implements Greeter {
+        private final AtomicInteger starts = new AtomicInteger();
+        private final boolean fail;
+
+        public GreeterService(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override
+        public String greet(String name) {
+            return "Hello, " + name;
+        }
+
+        @Override
+        protected void startUp() {
+            starts.incrementAndGet();
+            if (fail) {
+                throw new IllegalArgumentException("fail");
+            }
+        }
+
+        @Override
+        protected void shutDown() {
+        }
+    }
+
+    public static class Client {
+        @Autowired
+        private Greeter greeter;
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle(startMode = StartMode.LAZY)
+        public GreeterService greeter() {
+            return new GreeterService(false);
+        }
+
+        @Bean
+        @WithSmartLifecycle(startMode = StartMode.LAZY)
+        public GreeterService failing() {
+            return new GreeterService(true);
+        }
+
+        @Bean
+        public Client client() {
+            return new Client();
+        }
+    }
+}
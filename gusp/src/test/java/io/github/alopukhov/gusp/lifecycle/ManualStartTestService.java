@@ -0,0 +1,23 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+
+@SuppressWarnings("UnstableApiUsage")
+public class ManualStartTestService extends AbstractService {
+    @Override
+    protected void doStart() {
+    }
+
+    @Override
+    protected void doStop() {
+        notifyStopped();
+    }
+
+    public void externalStarted() {
+        notifyStarted();
+    }
+
+    public void externalFail(Exception cause) {
+        notifyFailed(cause);
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SuppressWarnings("UnstableApiUsage")
+class PhaseStartCoordinatorTest {
+    private final PhaseStartCoordinator coordinator = new PhaseStartCoordinator();
+
+    @Test
+    void start_startsAllAutoStartupServicesOfSamePhase() throws Exception {
+        // given
+        ManualStartTestService first = new ManualStartTestService();
+        ManualStartTestService second = new ManualStartTestService();
+        ManualStartTestService otherPhase = new ManualStartTestService();
+        ManualStartTestService noAutoStartup = new ManualStartTestService();
+        ServiceSmartLifecycle firstLifecycle = createLifecycle(first, 0);
+        createLifecycle(second, 0);
+        createLifecycle(otherPhase, 1);
+        createLifecycle(noAutoStartup, 0).setAutoStartup(false);
+        // when
+        CompletableFuture<Void> start = CompletableFuture.runAsync(firstLifecycle::start);
+        awaitStarting(second);
+        // then
+        assertThat(first.state()).isEqualTo(State.STARTING);
+        assertThat(second.state()).isEqualTo(State.STARTING);
+        assertThat(otherPhase.state()).isEqualTo(State.NEW);
+        assertThat(noAutoStartup.state()).isEqualTo(State.NEW);
+        // when
+        first.externalStarted();
+        // then
+        assertThat(start).isNotDone();
+        // when
+        second.externalStarted();
+        // then
+        start.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void start_failsOnFirstFailedService() throws Exception {
+        // given
+        ManualStartTestService hanging = new ManualStartTestService();
+        ManualStartTestService failing = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(hanging, 0);
+        createLifecycle(failing, 0);
+        CompletableFuture<Void> start = CompletableFuture.runAsync(lifecycle::start);
+        awaitStarting(failing);
+        RuntimeException cause = new RuntimeException("Test failure");
+        // when
+        failing.externalFail(cause);
+        // then
+        Throwable throwable = catchThrowable(() -> start.get(1, TimeUnit.SECONDS));
+        assertThat(throwable).hasRootCause(cause);
+        assertThat(hanging.state()).isEqualTo(State.STARTING);
+    }
+
+    @Test
+    void start_failsOnFirstTimedOutService() {
+        // given
+        ManualStartTestService hanging = new ManualStartTestService();
+        ManualStartTestService timingOut = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(hanging, 0);
+        createLifecycle(timingOut, 0).setStartTimeout(50);
+        // when
+        Throwable throwable = catchThrowable(lifecycle::start);
+        // then
+        assertThat(throwable)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("did not start within 50 ms");
+    }
+
+    @Test
+    void start_doesNotAwaitAsyncStartServices() throws Exception {
+        // given
+        ManualStartTestService sync = new ManualStartTestService();
+        ManualStartTestService async = new ManualStartTestService();
+        ServiceSmartLifecycle syncLifecycle = createLifecycle(sync, 0);
+        createLifecycle(async, 0).setAsyncStart(true);
+        CompletableFuture<Void> start = CompletableFuture.runAsync(syncLifecycle::start);
+        awaitStarting(sync);
+        // when
+        sync.externalStarted();
+        // then
+        start.get(1, TimeUnit.SECONDS);
+        assertThat(async.state()).isEqualTo(State.STARTING);
+    }
+
+    @Test
+    void givenAsyncStartLifecycleStartedFirst_start_awaitsSyncServicesOfPhase() throws Exception {
+        // given
+        ManualStartTestService sync = new ManualStartTestService();
+        ManualStartTestService async = new ManualStartTestService();
+        createLifecycle(sync, 0);
+        ServiceSmartLifecycle asyncLifecycle = createLifecycle(async, 0);
+        asyncLifecycle.setAsyncStart(true);
+        // when
+        CompletableFuture<Void> start = CompletableFuture.runAsync(asyncLifecycle::start);
+        awaitStarting(sync);
+        // then
+        assertThat(async.state()).isEqualTo(State.STARTING);
+        assertThat(start).isNotDone();
+        // when
+        sync.externalStarted();
+        // then
+        start.get(1, TimeUnit.SECONDS);
+        assertThat(sync.state()).isEqualTo(State.RUNNING);
+        assertThat(async.state()).isEqualTo(State.STARTING);
+    }
+
+    private static void awaitStarting(ManualStartTestService service) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (service.state() == State.NEW && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private ServiceSmartLifecycle createLifecycle(ManualStartTestService service, int phase) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setPhase(phase);
+        lifecycle.setCoordinator(coordinator);
+        return lifecycle;
+    }
+}
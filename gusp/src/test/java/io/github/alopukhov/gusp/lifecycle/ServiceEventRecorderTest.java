@@ -0,0 +1,71 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ServiceEventRecorderTest {
+    @Test
+    void testStateEventsAreRecorded() throws Exception {
+        // given
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new DummyService());
+        lifecycle.setServiceBeanName("dummy");
+        lifecycle.setPhase(3);
+        // when
+        List<RecordedEvent> events = record(() -> {
+            lifecycle.start();
+            lifecycle.stop();
+        });
+        // then
+        assertThat(events).extracting(event -> event.getString("state"), event -> event.getString("nextState"))
+                .containsExactly(tuple("STARTING", "RUNNING"), tuple("RUNNING", "STOPPING"), tuple("STOPPING", "TERMINATED"));
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getString("beanName")).isEqualTo("dummy");
+            assertThat(event.getClass("serviceClass").getName()).isEqualTo(DummyService.class.getName());
+            assertThat(event.getInt("phase")).isEqualTo(3);
+            assertThat(event.getString("failure")).isNull();
+        });
+    }
+
+    @Test
+    void testFailureIsRecorded() throws Exception {
+        // given
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        // when
+        List<RecordedEvent> events = record(() -> {
+            lifecycle.start();
+            service.externalFail(new Exception("boom"));
+        });
+        // then
+        assertThat(events).extracting(event -> event.getString("state"), event -> event.getString("nextState"))
+                .containsExactly(tuple("STARTING", "RUNNING"), tuple("RUNNING", "FAILED"));
+        assertThat(events.get(1).getString("failure")).contains("boom");
+    }
+
+    private static List<RecordedEvent> record(Runnable action) throws IOException {
+        Path file = Files.createTempFile("gusp", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ServiceStateEvent.NAME);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(ServiceStateEvent.NAME))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionValidationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("UnstableApiUsage")
+class ServiceInstancesTest {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    void testParseInstances() {
+        assertThat(ServiceInstancesFactoryBean.parseInstances("3")).isEqualTo(3);
+        assertThat(ServiceInstancesFactoryBean.parseInstances("cores")).isEqualTo(CORES);
+        assertThat(ServiceInstancesFactoryBean.parseInstances("cores * 2")).isEqualTo(CORES * 2);
+    }
+
+    @Test
+    void testMalformedInstances() {
+        assertThatThrownBy(() -> ServiceInstancesFactoryBean.parseInstances("0"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ServiceInstancesFactoryBean.parseInstances("cores*"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ServiceInstancesFactoryBean.parseInstances("threads"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testReplicatedServiceIsManagedAsOneUnit() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+        Service[] instances = context.getBean(ServiceInstancesFactoryBean.INSTANCES_NAME_PREFIX + "worker", Service[].class);
+        // expect
+        assertThat(lifecycle.isRunning()).isTrue();
+        assertThat(lifecycle.getMemberStates()).hasSize(CORES * 2).containsOnlyKeys(instances);
+        assertThat(Arrays.stream(instances).mapToInt(instance -> ((IndexedService) instance).index))
+                .containsExactlyInAnyOrder(IntStream.range(0, CORES * 2).boxed().toArray(Integer[]::new));
+        assertThat(Arrays.stream(instances).mapToInt(instance -> ((IndexedService) instance).instances))
+                .containsOnly(CORES * 2);
+        // when
+        context.close();
+        // then
+        assertThat(instances).allMatch(instance -> instance.state() == State.TERMINATED);
+    }
+
+    @Test
+    void testReplicatedSingletonIsRejected() {
+        assertThatThrownBy(() -> new AnnotationConfigApplicationContext(SingletonConf.class))
+                .isInstanceOf(BeanDefinitionValidationException.class);
+    }
+
+    public static class IndexedService extends DummyService implements InstanceIndexAware {
+        private int index = -1;
+        private int instances;
+
+        @Override
+        public void setInstanceIndex(int index, int instances) {
+            this.index = index;
+            this.instances = instances;
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @Scope("prototype")
+        @WithSmartLifecycle(instances = "cores*2")
+        public IndexedService worker() {
+            return new IndexedService();
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class SingletonConf {
+        @Bean
+        @WithSmartLifecycle(instances = "2")
+        public IndexedService worker() {
+            return new IndexedService();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import com.google.common.util.concurrent.ServiceManager;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
+
+@SuppressWarnings("UnstableApiUsage")
+class ServiceManagerServiceTest {
+    @Test
+    void testStartAndStopAllServices() {
+        // given
+        DummyService first = new DummyService();
+        DummyService second = new DummyService();
+        ServiceSmartLifecycle lifecycle = ServiceSmartLifecycle.forManager(new ServiceManager(Arrays.asList(first, second)));
+        // when
+        lifecycle.start();
+        // then
+        assertThat(lifecycle.isRunning()).isTrue();
+        assertThat(first.state()).isEqualTo(State.RUNNING);
+        assertThat(second.state()).isEqualTo(State.RUNNING);
+        assertThat(lifecycle.getStartupTimes()).containsOnlyKeys(first, second);
+        // when
+        lifecycle.stop();
+        // then
+        assertThat(lifecycle.isRunning()).isFalse();
+        assertThat(lifecycle.getState()).isEqualTo(State.TERMINATED);
+        assertThat(first.state()).isEqualTo(State.TERMINATED);
+        assertThat(second.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testFailureOfAnyServiceFailsManagerService() {
+        // given
+        ManualTestService failing = new ManualTestService();
+        DummyService other = new DummyService();
+        ServiceSmartLifecycle lifecycle = ServiceSmartLifecycle.forManager(new ServiceManager(Arrays.asList(failing, other)));
+        lifecycle.start();
+        Exception cause = new Exception("fail");
+        // when
+        failing.externalFail(cause);
+        // then
+        Service service = lifecycle.getService();
+        assertThat(service.state()).isEqualTo(State.FAILED);
+        assertThat(service.failureCause()).isSameAs(cause);
+        assertThat(other.state()).isEqualTo(State.TERMINATED);
+        assertThat(lifecycle.isRunning()).isFalse();
+    }
+
+    @Test
+    void testStartFailsIfServiceFailsToStart() {
+        // given
+        ManualStartTestService neverStarted = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = ServiceSmartLifecycle.forManager(new ServiceManager(Arrays.asList(neverStarted, new DummyService())));
+        lifecycle.setStartTimeout(50);
+        // when
+        Throwable throwable = catchThrowable(lifecycle::start);
+        // then
+        assertThat(throwable).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testAnnotatedServiceManagerBean() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        ServiceManager manager = context.getBean(ServiceManager.class);
+        ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+        // expect
+        assertThat(((ServiceManagerService) lifecycle.getService()).getManager()).isSameAs(manager);
+        assertThat(manager.isHealthy()).isTrue();
+        // when
+        context.close();
+        // then
+        assertThat(manager.servicesByState().keySet()).containsOnly(State.TERMINATED);
+    }
+
+    @Test
+    void testGroupReportsMemberStates() {
+        // given
+        DummyService first = new DummyService();
+        ManualTestService second = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = ServiceSmartLifecycle.forGroup(new Service[]{first, second});
+        lifecycle.start();
+        // when
+        second.externalFail(new Exception("fail"));
+        // then
+        assertThat(lifecycle.getState()).isEqualTo(State.FAILED);
+        assertThat(lifecycle.getMemberStates()).containsOnly(entry(first, State.TERMINATED), entry(second, State.FAILED));
+    }
+
+    @Test
+    void testAnnotatedServiceGroupBeans() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(GroupConf.class);
+        // when
+        Map<String, ServiceSmartLifecycle> lifecycles = context.getBeansOfType(ServiceSmartLifecycle.class);
+        // then
+        assertThat(lifecycles).hasSize(2);
+        for (ServiceSmartLifecycle lifecycle : lifecycles.values()) {
+            assertThat(lifecycle.isRunning()).isTrue();
+            assertThat(lifecycle.getMemberStates()).hasSize(3).containsValues(State.RUNNING).doesNotContainValue(State.NEW);
+        }
+        // when
+        context.close();
+        // then
+        for (ServiceSmartLifecycle lifecycle : lifecycles.values()) {
+            assertThat(lifecycle.getMemberStates().values()).containsOnly(State.TERMINATED);
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class GroupConf {
+        @Bean
+        @WithSmartLifecycle
+        public List<Service> shards() {
+            return Arrays.asList(new DummyService(), new DummyService(), new DummyService());
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public Service[] workers() {
+            return new Service[]{new DummyService(), new DummyService(), new DummyService()};
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle
+        public ServiceManager manager() {
+            return new ServiceManager(Arrays.asList(new DummyService(), new DummyService()));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.Service;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.alopukhov.gusp.lifecycle.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("UnstableApiUsage")
+class ServiceReadinessTest {
+    private final ServiceReadiness readiness = new ServiceReadiness();
+
+    @Test
+    void testReadyAfterWarmUp() throws Exception {
+        // given
+        WarmUpService service = new WarmUpService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service);
+        lifecycle.setWarmUpIterations(3);
+        // when
+        lifecycle.start();
+        // then
+        assertThat(lifecycle.isReady()).isFalse();
+        assertThat(readiness.isReady()).isFalse();
+        assertThat(readiness.getNotReady()).containsExactly(lifecycle);
+        // when
+        service.release.countDown();
+        // then
+        await(readiness::isReady);
+        assertThat(service.iterations.get()).isEqualTo(3);
+        assertThat(readiness.getNotReady()).isEmpty();
+        // when
+        lifecycle.stop();
+        // then
+        assertThat(readiness.isReady()).isFalse();
+    }
+
+    @Test
+    void testWarmUpTimeout() throws Exception {
+        // given
+        WarmUpService service = new WarmUpService();
+        service.release.countDown();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service);
+        lifecycle.setWarmUpIterations(0);
+        lifecycle.setWarmUpTimeout(50);
+        // when
+        lifecycle.start();
+        // then
+        await(lifecycle::isReady);
+        assertThat(service.iterations.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void testFailedWarmUpFinishesWarmUp() throws Exception {
+        // given
+        WarmUpService service = new WarmUpService();
+        service.fail = true;
+        service.release.countDown();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service);
+        lifecycle.setWarmUpIterations(5);
+        // when
+        lifecycle.start();
+        // then
+        await(lifecycle::isReady);
+        assertThat(service.iterations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testServiceWithoutWarmUpIsReadyWhenRunning() {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle(new DummyService());
+        // expect
+        assertThat(lifecycle.isReady()).isFalse();
+        // when
+        lifecycle.start();
+        // then
+        assertThat(lifecycle.isReady()).isTrue();
+        assertThat(readiness.isReady()).isTrue();
+    }
+
+    @Test
+    void testNotAutoStartupServicesAreIgnored() {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle(new DummyService());
+        lifecycle.setAutoStartup(false);
+        // expect
+        assertThat(readiness.isReady()).isTrue();
+    }
+
+    @Test
+    void testReadinessIsSharedByAdapters() throws Exception {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        ServiceReadiness readiness = context.getBean(ServiceReadiness.class);
+        ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+        WarmUpService service = context.getBean(WarmUpService.class);
+        // expect
+        assertThat(lifecycle.getReadiness()).isSameAs(readiness);
+        assertThat(lifecycle.getWarmUpIterations()).isEqualTo(2);
+        assertThat(lifecycle.getWarmUpTimeout()).isEqualTo(1000);
+        // when
+        service.release.countDown();
+        // then
+        await(readiness::isReady);
+        assertThat(service.iterations.get()).isEqualTo(2);
+        context.close();
+    }
+
+    private ServiceSmartLifecycle createLifecycle(Service service) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setReadiness(readiness);
+        return lifecycle;
+    }
+
+    public static class WarmUpService extends AbstractIdleService implements WarmUp {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger iterations = new AtomicInteger();
+        private volatile boolean fail;
+
+        @Override
+        public void warmUp() throws Exception {
+            release.await();
+            iterations.incrementAndGet();
+            if (fail) {
+                throw new IllegalStateException("fail");
+            }
+            Thread.sleep(1);
+        }
+
+        @Override
+        protected void startUp() {
+        }
+
+        @Override
+        protected void shutDown() {
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle(warmUpIterations = 2, warmUpTimeout = 1000)
+        public WarmUpService warmUpService() {
+            return new WarmUpService();
+        }
+    }
+}
@@ -72,6 +72,24 @@ public class ServiceSmartLifecycleAdpaterAssert extends AbstractObjectAssert<Ser
         return this;
     }
 
+    public ServiceSmartLifecycleAdpaterAssert hasStartTimeout(long startTimeout) {
+        isNotNull();
+        long actualStartTimeout = actual.getStartTimeout();
+        if (actualStartTimeout != startTimeout) {
+            failWithMessage("Expected start timeout %s but it was %s", startTimeout, actualStartTimeout);
+        }
+        return this;
+    }
+
+    public ServiceSmartLifecycleAdpaterAssert hasStopTimeout(long stopTimeout) {
+        isNotNull();
+        long actualStopTimeout = actual.getStopTimeout();
+        if (actualStopTimeout != stopTimeout) {
+            failWithMessage("Expected stop timeout %s but it was %s", stopTimeout, actualStopTimeout);
+        }
+        return this;
+    }
+
     public ServiceSmartLifecycleAdpaterAssert isRunning(boolean isRunning) {
         isNotNull();
         boolean actualIsRunning = actual.isRunning();
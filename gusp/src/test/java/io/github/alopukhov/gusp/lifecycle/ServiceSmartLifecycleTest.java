@@ -12,9 +12,13 @@ import org.mockito.InOrder;
 import org.springframework.context.Lifecycle;
 import org.springframework.context.SmartLifecycle;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycleAdpaterAssert.assertThatLifecycleSupport;
@@ -227,6 +231,206 @@ class ServiceSmartLifecycleTest {
         assertThat(counter).hasValue(1);
     }
 
+    @Test
+    public void testStatsRecordTransitions() {
+        // given
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        ServiceLifecycleStats stats = lifecycle.getStats();
+        // then
+        assertThat(stats.getStartDuration()).isNegative();
+        assertThat(stats.getTimeInStarting()).isNegative();
+        // when
+        lifecycle.start();
+        lifecycle.stop(() -> {});
+        // then
+        assertThat(stats.getStartDuration()).isNotNegative().isEqualTo(stats.getTimeInStarting());
+        assertThat(stats.getStopDuration()).isNegative();
+        assertThat(stats.getTimeInStopping()).isNotNegative();
+        // when
+        service.externalFail(new RuntimeException("Test failure"));
+        // then
+        assertThat(stats.getStopDuration()).isNotNegative();
+        assertThat(stats.getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenStartTimeout_start_throwsISEWhenServiceDoesNotStartInTime() {
+        // given
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new ManualStartTestService());
+        lifecycle.setStartTimeout(50);
+        // when
+        Throwable throwable = catchThrowable(lifecycle::start);
+        // then
+        assertThat(throwable)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("did not start within 50 ms");
+    }
+
+    @Test
+    public void givenStopTimeout_stop_stopsWaitingForService() {
+        // given
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setStopTimeout(50);
+        lifecycle.start();
+        // when
+        Throwable throwable = catchThrowable(lifecycle::stop);
+        // then
+        assertThat(throwable).doesNotThrowAnyException();
+        assertThat(service.state()).isEqualTo(State.STOPPING);
+    }
+
+    @Test
+    public void givenStopTimeout_asyncStop_executesCallbackOnTimeout() throws Exception {
+        // given
+        CountDownLatch cdl = new CountDownLatch(1);
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setStopTimeout(50);
+        lifecycle.start();
+        // when
+        lifecycle.stop(cdl::countDown);
+        // then
+        assertThat(cdl.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.state()).isEqualTo(State.STOPPING);
+    }
+
+    @Test
+    public void givenSharedShutdownBudget_stop_stopsWaitingOnceBudgetIsExhausted() {
+        // given
+        ShutdownBudget budget = new ShutdownBudget(50, TimeUnit.MILLISECONDS);
+        ServiceSmartLifecycle first = new ServiceSmartLifecycle(new ManualTestService());
+        ServiceSmartLifecycle second = new ServiceSmartLifecycle(new ManualTestService());
+        first.setShutdownBudget(budget);
+        second.setShutdownBudget(budget);
+        first.start();
+        second.start();
+        // when
+        first.stop();
+        long startedAt = System.nanoTime();
+        second.stop();
+        long elapsed = System.nanoTime() - startedAt;
+        // then
+        assertThat(budget.remainingNanos()).isZero();
+        assertThat(elapsed).isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void startAsync_completesOnceServiceIsRunning() {
+        // given
+        ManualStartTestService service = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        // when
+        CompletableFuture<State> future = lifecycle.startAsync();
+        // then
+        assertThat(service.state()).isEqualTo(State.STARTING);
+        assertThat(future).isNotDone();
+        // when
+        service.externalStarted();
+        // then
+        assertThat(future).isCompletedWithValue(State.RUNNING);
+        assertThat(lifecycle.getState()).isEqualTo(State.RUNNING);
+        assertThat(lifecycle.startAsync()).isCompletedWithValue(State.RUNNING);
+    }
+
+    @Test
+    public void givenServiceWhichFailsToStart_startAsync_completesExceptionally() {
+        // given
+        RuntimeException cause = new RuntimeException("Test failure");
+        ManualStartTestService service = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        CompletableFuture<State> future = lifecycle.startAsync();
+        // when
+        service.externalFail(cause);
+        // then
+        assertThat(catchThrowable(future::join).getCause())
+                .isInstanceOf(IllegalStateException.class)
+                .hasCause(cause);
+        assertThat(lifecycle.startAsync()).isCompletedExceptionally();
+    }
+
+    @Test
+    public void givenStartTimeout_startAsync_completesExceptionallyWhenServiceDoesNotStartInTime() {
+        // given
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new ManualStartTestService());
+        lifecycle.setStartTimeout(50);
+        // when
+        Throwable throwable = catchThrowable(() -> lifecycle.startAsync().get(1, TimeUnit.SECONDS));
+        // then
+        assertThat(throwable)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("did not start within 50 ms");
+    }
+
+    @Test
+    public void stopAsync_completesOnceServiceIsTerminated() {
+        // given
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.start();
+        // when
+        CompletableFuture<State> future = lifecycle.stopAsync();
+        // then
+        assertThat(future).isNotDone();
+        // when
+        service.externalStop();
+        // then
+        assertThat(future).isCompletedWithValue(State.TERMINATED);
+        assertThat(lifecycle.stopAsync()).isCompletedWithValue(State.TERMINATED);
+    }
+
+    @Test
+    public void givenStopTimeout_stopAsync_completesExceptionallyWhenServiceDoesNotStopInTime() {
+        // given
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new ManualTestService());
+        lifecycle.setStopTimeout(50);
+        lifecycle.start();
+        // when
+        Throwable throwable = catchThrowable(() -> lifecycle.stopAsync().get(1, TimeUnit.SECONDS));
+        // then
+        assertThat(throwable).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    public void startAll_completesOnceAllServicesAreRunning() {
+        // given
+        ManualStartTestService first = new ManualStartTestService();
+        ManualStartTestService second = new ManualStartTestService();
+        ServiceSmartLifecycle firstLifecycle = new ServiceSmartLifecycle(first);
+        ServiceSmartLifecycle secondLifecycle = new ServiceSmartLifecycle(second);
+        // when
+        CompletableFuture<Void> all = ServiceSmartLifecycle.startAll(Arrays.asList(firstLifecycle, secondLifecycle));
+        first.externalStarted();
+        // then
+        assertThat(all).isNotDone();
+        // when
+        second.externalStarted();
+        // then
+        assertThat(all).isCompleted().isNotCompletedExceptionally();
+        // when
+        CompletableFuture<Void> stopped = ServiceSmartLifecycle.stopAll(Arrays.asList(firstLifecycle, secondLifecycle));
+        // then
+        assertThat(stopped).isCompleted().isNotCompletedExceptionally();
+        assertThat(first.state()).isEqualTo(State.TERMINATED);
+        assertThat(second.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    public void givenServiceWhichFailsToStart_startAll_completesExceptionallyWithoutWaitingForOthers() {
+        // given
+        ManualStartTestService failing = new ManualStartTestService();
+        ServiceSmartLifecycle first = new ServiceSmartLifecycle(failing);
+        ServiceSmartLifecycle second = new ServiceSmartLifecycle(new ManualStartTestService());
+        CompletableFuture<Void> all = ServiceSmartLifecycle.startAll(Arrays.asList(first, second));
+        // when
+        failing.externalFail(new RuntimeException("Test failure"));
+        // then
+        assertThat(all).isCompletedExceptionally();
+        assertThat(second.getState()).isEqualTo(State.STARTING);
+    }
+
     private void verifyStartSequence(Service mockService, boolean shouldStart, boolean shouldAwaitRunning) {
         InOrder inOrder = inOrder(mockService);
         inOrder.verify(mockService, atLeastOnce()).state();
@@ -0,0 +1,126 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static com.google.common.util.concurrent.Service.State.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("UnstableApiUsage")
+class ServiceStateRegistryTest {
+    private final ServiceStateRegistry registry = new ServiceStateRegistry();
+
+    @Test
+    void testCachedStateFollowsService() {
+        // given
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, "manual");
+        // expect
+        assertThat(lifecycle.getState()).isEqualTo(NEW);
+        // when
+        lifecycle.start();
+        // then
+        assertThat(lifecycle.getState()).isEqualTo(RUNNING);
+        assertThat(lifecycle.isRunning()).isTrue();
+        // when
+        service.stopAsync();
+        // then
+        assertThat(lifecycle.getState()).isEqualTo(STOPPING);
+        assertThat(lifecycle.isRunning()).isTrue();
+        // when
+        service.externalStop();
+        // then
+        assertThat(lifecycle.getState()).isEqualTo(TERMINATED);
+        assertThat(lifecycle.isRunning()).isFalse();
+    }
+
+    @Test
+    void testCachedStateOfFailedService() {
+        // given
+        ManualTestService service = new ManualTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, "manual");
+        lifecycle.start();
+        // when
+        service.externalFail(new Exception("fail"));
+        // then
+        assertThat(lifecycle.getState()).isEqualTo(FAILED);
+        assertThat(lifecycle.isRunning()).isFalse();
+    }
+
+    @Test
+    void testIsRunningDoesNotQueryService() {
+        // given
+        Service service = mock(Service.class);
+        when(service.state()).thenReturn(RUNNING);
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, "mock");
+        clearInvocations(service);
+        // when
+        boolean running = lifecycle.isRunning();
+        // then
+        assertThat(running).isTrue();
+        verify(service, never()).state();
+    }
+
+    @Test
+    void testRegistryReportsAllStates() {
+        // given
+        ServiceSmartLifecycle running = createLifecycle(new DummyService(), "running");
+        ServiceSmartLifecycle idle = createLifecycle(new DummyService(), "idle");
+        running.start();
+        Map<ServiceSmartLifecycle, State> visited = new IdentityHashMap<>();
+        // when
+        registry.forEachState(visited::put);
+        // then
+        assertThat(visited).containsEntry(running, RUNNING).containsEntry(idle, NEW).hasSize(2);
+        assertThat(registry.getStates()).containsExactly(entry("running", RUNNING), entry("idle", NEW));
+        assertThat(registry.count(RUNNING)).isEqualTo(1);
+        assertThat(registry.count(NEW)).isEqualTo(1);
+    }
+
+    @Test
+    void testRegistryIsSharedByAdapters() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        ServiceStateRegistry registry = context.getBean(ServiceStateRegistry.class);
+        // expect
+        assertThat(registry.getStates()).containsOnly(entry("first", RUNNING), entry("second", RUNNING));
+        // when
+        context.close();
+        // then
+        assertThat(registry.getStates()).containsOnly(entry("first", TERMINATED), entry("second", TERMINATED));
+    }
+
+    private ServiceSmartLifecycle createLifecycle(Service service, String serviceBeanName) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setServiceBeanName(serviceBeanName);
+        lifecycle.setStateRegistry(registry);
+        return lifecycle;
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle
+        public DummyService first() {
+            return new DummyService();
+        }
+
+        @Bean
+        @WithSmartLifecycle
+        public DummyService second() {
+            return new DummyService();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.alopukhov.gusp.lifecycle.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("UnstableApiUsage")
+class StallWatchdogTest {
+    private final List<ServiceStallEvent> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testStuckStartIsReportedWithRateLimit() throws Exception {
+        // given
+        ManualStartTestService service = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, 50);
+        lifecycle.getStallWatchdog().setReportInterval(100);
+        // when
+        lifecycle.start();
+        await(() -> !events.isEmpty());
+        // then
+        ServiceStallEvent event = events.get(0);
+        assertThat(event.getLifecycle()).isSameAs(lifecycle);
+        assertThat(event.getState()).isEqualTo(State.STARTING);
+        assertThat(event.getStalledFor()).isGreaterThanOrEqualTo(50);
+        assertThat(event.getStackTraces()).isEmpty();
+        // when
+        Thread.sleep(250);
+        service.externalStarted();
+        int reported = events.size();
+        Thread.sleep(150);
+        // then
+        assertThat(reported).isBetween(2, 4);
+        assertThat(events).hasSize(reported);
+    }
+
+    @Test
+    void testServiceThreadsAreCaptured() throws Exception {
+        // given
+        BlockingStartService service = new BlockingStartService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, 50);
+        // when
+        lifecycle.start();
+        await(() -> !events.isEmpty());
+        service.latch.countDown();
+        // then
+        assertThat(events.get(0).getStackTraces()).hasSize(1).allSatisfy((thread, stackTrace) -> {
+            assertThat(thread.getName()).contains(BlockingStartService.class.getSimpleName());
+            assertThat(Arrays.asList(stackTrace)).anyMatch(element -> element.getMethodName().equals("startUp"));
+        });
+        lifecycle.stop();
+    }
+
+    @Test
+    void testThreadsOnlyContainingServiceNameAreNotCaptured() throws Exception {
+        // given
+        CountDownLatch release = new CountDownLatch(1);
+        Thread unrelated = new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "pool-" + BlockingStartService.class.getSimpleName() + "Helper");
+        unrelated.start();
+        BlockingStartService service = new BlockingStartService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, 50);
+        // when
+        lifecycle.start();
+        await(() -> !events.isEmpty());
+        service.latch.countDown();
+        release.countDown();
+        // then
+        assertThat(events.get(0).getStackTraces().keySet())
+                .extracting(Thread::getName)
+                .containsExactly(BlockingStartService.class.getSimpleName() + " " + State.STARTING);
+        lifecycle.stop();
+    }
+
+    @Test
+    void testSlowPublisherDoesNotBlockLifecycleTimer() throws Exception {
+        // given
+        CountDownLatch published = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> publishingThreads = new CopyOnWriteArrayList<>();
+        ManualStartTestService service = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, 50);
+        lifecycle.getStallWatchdog().setApplicationEventPublisher(new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                publishingThreads.add(Thread.currentThread().getName());
+                published.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        lifecycle.start();
+        assertThat(published.await(1, TimeUnit.SECONDS)).isTrue();
+        CountDownLatch timerTask = new CountDownLatch(1);
+        // when
+        LifecycleTimer.execute(timerTask::countDown);
+        // then
+        assertThat(timerTask.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(publishingThreads).allMatch(name -> !name.equals("gusp-lifecycle-timer"));
+        release.countDown();
+        service.externalStarted();
+    }
+
+    @Test
+    void testWatchdogSetTwiceReportsOnce() throws Exception {
+        // given
+        ManualStartTestService service = new ManualStartTestService();
+        ServiceSmartLifecycle lifecycle = createLifecycle(service, 50);
+        lifecycle.setStallWatchdog(lifecycle.getStallWatchdog());
+        // when
+        lifecycle.start();
+        await(() -> !events.isEmpty());
+        Thread.sleep(100);
+        // then
+        assertThat(events).hasSize(1);
+        service.externalStarted();
+    }
+
+    @Test
+    void testFastStartIsNotReported() throws Exception {
+        // given
+        ServiceSmartLifecycle lifecycle = createLifecycle(new DummyService(), 50);
+        // when
+        lifecycle.start();
+        lifecycle.stop();
+        Thread.sleep(100);
+        // then
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void testWatchdogIsRegisteredByEnableGusp() throws Exception {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        Listener listener = context.getBean(Listener.class);
+        // when
+        await(() -> !listener.events.isEmpty());
+        // then
+        assertThat(context.getBean(WithSmartLifecyclePostprocessor.STALL_WATCHDOG_BEAN_NAME, StallWatchdog.class)
+                .getThreshold()).isEqualTo(50);
+        assertThat(listener.events.get(0).getLifecycle().getServiceBeanName()).isEqualTo("stuck");
+        context.getBean(ManualStartTestService.class).externalStarted();
+        context.close();
+    }
+
+    private ServiceSmartLifecycle createLifecycle(Service service, long threshold) {
+        StallWatchdog watchdog = new StallWatchdog(threshold);
+        watchdog.setApplicationEventPublisher(new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                events.add((ServiceStallEvent) event);
+            }
+        });
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(service);
+        lifecycle.setAsyncStart(true);
+        lifecycle.setStallWatchdog(watchdog);
+        return lifecycle;
+    }
+
+    public static class BlockingStartService extends AbstractIdleService {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        protected void startUp() throws Exception {
+            latch.await();
+        }
+
+        @Override
+        protected void shutDown() {
+        }
+    }
+
+    public static class Listener implements ApplicationListener<ServiceStallEvent> {
+        private final List<ServiceStallEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onApplicationEvent(ServiceStallEvent event) {
+            events.add(event);
+        }
+    }
+
+    @Configuration
+    @EnableGusp(stallThreshold = 50)
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle(asyncStart = true)
+        public ManualStartTestService stuck() {
+            return new ManualStartTestService();
+        }
+
+        @Bean
+        public Listener listener() {
+            return new Listener();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@SuppressWarnings("UnstableApiUsage")
+class StartupProfileTest {
+    @TempDir
+    Path dir;
+
+    private final List<String> startOrder = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testMovingAverageIsKeptAcrossRuns() {
+        // given
+        String file = dir.resolve("profile.properties").toString();
+        StartupProfile first = new StartupProfile(file);
+        first.record("slow", 1000);
+        first.record("fast", 10);
+        first.save();
+        // when
+        StartupProfile second = new StartupProfile(file);
+        second.record("slow", 2000);
+        // then
+        assertThat(second.getStartDurations()).containsExactly(entry("slow", 1500L), entry("fast", 10L));
+        assertThat(second.getExpectedStartDuration("unknown")).isEqualTo(-1);
+        assertThat(second.getReport()).contains("slow: average 1500 ms, last 2000 ms", "fast: average 10 ms, last -");
+    }
+
+    @Test
+    void testStaleEntriesAreIgnored() throws Exception {
+        // given
+        Path file = dir.resolve("profile.properties");
+        Files.write(file, Arrays.asList("stale=1000.0,0", "malformed=abc"));
+        // when
+        StartupProfile profile = new StartupProfile(file.toString());
+        // then
+        assertThat(profile.getExpectedStartDuration("stale")).isEqualTo(-1);
+        assertThat(profile.getStartDurations()).isEmpty();
+        // when
+        profile.record("stale", 20);
+        // then
+        assertThat(profile.getExpectedStartDuration("stale")).isEqualTo(20);
+    }
+
+    @Test
+    void testObservedStartIsRecorded() {
+        // given
+        StartupProfile profile = new StartupProfile(dir.resolve("profile.properties").toString());
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new DummyService());
+        lifecycle.setServiceBeanName("dummy");
+        lifecycle.setStartupProfile(profile);
+        // when
+        lifecycle.start();
+        // then
+        assertThat(profile.getStartDurations()).containsOnlyKeys("dummy");
+        lifecycle.stop();
+    }
+
+    @Test
+    void testProfileSetTwiceRecordsOnce() {
+        // given
+        List<String> recorded = new CopyOnWriteArrayList<>();
+        StartupProfile profile = new StartupProfile(dir.resolve("profile.properties").toString()) {
+            @Override
+            void record(String beanName, long duration) {
+                recorded.add(beanName);
+                super.record(beanName, duration);
+            }
+        };
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new DummyService());
+        lifecycle.setServiceBeanName("dummy");
+        lifecycle.setStartupProfile(profile);
+        lifecycle.setStartupProfile(profile);
+        // when
+        lifecycle.start();
+        // then
+        assertThat(recorded).containsExactly("dummy");
+        lifecycle.stop();
+    }
+
+    @Test
+    void testCoordinatorStartsLongestFirst() {
+        // given
+        StartupProfile profile = new StartupProfile(dir.resolve("profile.properties").toString());
+        profile.record("medium", 100);
+        profile.record("long", 1000);
+        PhaseStartCoordinator coordinator = new PhaseStartCoordinator();
+        coordinator.setStartupProfile(profile);
+        ServiceSmartLifecycle first = createLifecycle("unknown1", coordinator);
+        createLifecycle("medium", coordinator);
+        createLifecycle("unknown2", coordinator);
+        createLifecycle("long", coordinator);
+        // when
+        first.start();
+        // then
+        assertThat(startOrder).containsExactly("long", "medium", "unknown1", "unknown2");
+    }
+
+    private ServiceSmartLifecycle createLifecycle(String name, PhaseStartCoordinator coordinator) {
+        ServiceSmartLifecycle lifecycle = new ServiceSmartLifecycle(new AbstractService() {
+            @Override
+            protected void doStart() {
+                startOrder.add(name);
+                notifyStarted();
+            }
+
+            @Override
+            protected void doStop() {
+                notifyStopped();
+            }
+        });
+        lifecycle.setServiceBeanName(name);
+        lifecycle.setCoordinator(coordinator);
+        return lifecycle;
+    }
+}
@@ -0,0 +1,291 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.support.BeanDefinitionValidationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.alopukhov.gusp.lifecycle.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("UnstableApiUsage")
+class SupervisedServiceTest {
+    private final List<CounterService> instances = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testFailedInstanceIsReplaced() throws Exception {
+        // given
+        SupervisedService supervisor = createSupervisor();
+        supervisor.startAsync().awaitRunning();
+        CounterService first = instances.get(0);
+        // when
+        first.fail(new Exception("fail"));
+        // then
+        await(() -> instances.size() == 2 && instances.get(1).state() == State.RUNNING);
+        assertThat(supervisor.getCurrent()).isSameAs(instances.get(1));
+        assertThat(supervisor.getRestarts()).isEqualTo(1);
+        assertThat(supervisor.state()).isEqualTo(State.RUNNING);
+        // when
+        supervisor.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        // then
+        assertThat(instances.get(1).state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testSlowFactoryDoesNotBlockLifecycleTimer() throws Exception {
+        // given
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SupervisedService supervisor = createBlockingSupervisor(creating, release);
+        supervisor.setRestartBackoff(1);
+        supervisor.startAsync().awaitRunning();
+        instances.get(0).fail(new Exception("fail"));
+        assertThat(creating.await(1, TimeUnit.SECONDS)).isTrue();
+        CountDownLatch timerTask = new CountDownLatch(1);
+        // when
+        LifecycleTimer.execute(timerTask::countDown);
+        // then
+        assertThat(timerTask.await(1, TimeUnit.SECONDS)).isTrue();
+        // when
+        release.countDown();
+        // then
+        await(() -> instances.size() == 2 && instances.get(1).state() == State.RUNNING);
+        assertThat(supervisor.getCurrent()).isSameAs(instances.get(1));
+        supervisor.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStopWhileReplacementIsCreatedDropsIt() throws Exception {
+        // given
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SupervisedService supervisor = createBlockingSupervisor(creating, release);
+        supervisor.setRestartBackoff(1);
+        supervisor.startAsync().awaitRunning();
+        instances.get(0).fail(new Exception("fail"));
+        assertThat(creating.await(1, TimeUnit.SECONDS)).isTrue();
+        // when
+        supervisor.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        release.countDown();
+        await(() -> instances.size() == 2);
+        Thread.sleep(50);
+        // then
+        assertThat(supervisor.getCurrent()).isSameAs(instances.get(0));
+        assertThat(instances.get(1).state()).isEqualTo(State.NEW);
+    }
+
+    @Test
+    void testRestartIsDelayedByBackoff() throws Exception {
+        // given
+        SupervisedService supervisor = createSupervisor();
+        supervisor.setRestartBackoff(200);
+        supervisor.startAsync().awaitRunning();
+        // when
+        instances.get(0).fail(new Exception("fail"));
+        Thread.sleep(50);
+        // then
+        assertThat(instances).hasSize(1);
+        await(() -> instances.size() == 2);
+    }
+
+    @Test
+    void testRestartIntensityLimit() throws Exception {
+        // given
+        SupervisedService supervisor = createSupervisor();
+        supervisor.setRestartBackoff(1);
+        supervisor.setMaxRestarts(1);
+        supervisor.startAsync().awaitRunning();
+        Exception cause = new Exception("fail again");
+        // when
+        instances.get(0).fail(new Exception("fail"));
+        await(() -> instances.size() == 2 && instances.get(1).state() == State.RUNNING);
+        instances.get(1).fail(cause);
+        // then
+        await(() -> supervisor.state() == State.FAILED);
+        assertThat(supervisor.failureCause()).isSameAs(cause);
+        assertThat(instances).hasSize(2);
+    }
+
+    @Test
+    void testStopCancelsPendingRestart() throws Exception {
+        // given
+        SupervisedService supervisor = createSupervisor();
+        supervisor.setRestartBackoff(10000);
+        supervisor.startAsync().awaitRunning();
+        instances.get(0).fail(new Exception("fail"));
+        // when
+        supervisor.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        // then
+        assertThat(instances).hasSize(1);
+    }
+
+    @Test
+    void testSuspendedInstanceIsReplacedOnResume() throws Exception {
+        // given
+        SupervisedService supervisor = createSupervisor();
+        supervisor.startAsync().awaitRunning();
+        // when
+        supervisor.suspend(1, TimeUnit.SECONDS);
+        // then
+        assertThat(instances.get(0).state()).isEqualTo(State.TERMINATED);
+        assertThat(supervisor.isSuspended()).isTrue();
+        assertThat(supervisor.state()).isEqualTo(State.RUNNING);
+        // when
+        supervisor.resume(1, TimeUnit.SECONDS);
+        // then
+        assertThat(instances).hasSize(2);
+        assertThat(supervisor.getCurrent()).isSameAs(instances.get(1));
+        assertThat(instances.get(1).state()).isEqualTo(State.RUNNING);
+        assertThat(supervisor.isSuspended()).isFalse();
+        assertThat(supervisor.getRestarts()).isZero();
+        // when
+        supervisor.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        // then
+        assertThat(instances.get(1).state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testSuspendedSupervisorStops() throws Exception {
+        // given
+        SupervisedService supervisor = createSupervisor();
+        supervisor.startAsync().awaitRunning();
+        supervisor.suspend(1, TimeUnit.SECONDS);
+        // when
+        supervisor.stopAsync().awaitTerminated(1, TimeUnit.SECONDS);
+        // then
+        assertThat(instances).hasSize(1);
+    }
+
+    @Test
+    void testFacadeRoutesToCurrentInstance() throws Exception {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        Counter counter = context.getBean(Counter.class);
+        SupervisedService supervisor = context.getBean(SupervisedServiceProxyFactoryBean.SUPERVISOR_NAME_PREFIX + "counter",
+                SupervisedService.class);
+        ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+        counter.increment();
+        // expect
+        assertThat(lifecycle.getService()).isSameAs(supervisor);
+        assertThat(supervisor.getMaxRestarts()).isEqualTo(3);
+        assertThat(counter.increment()).isEqualTo(2);
+        // when
+        ((CounterService) supervisor.getCurrent()).fail(new Exception("fail"));
+        await(() -> supervisor.getRestarts() == 1 && supervisor.getCurrent().state() == State.RUNNING);
+        // then
+        assertThat(context.getBean(Counter.class)).isSameAs(counter);
+        assertThat(counter.increment()).isEqualTo(1);
+        assertThat(((Service) counter).isRunning()).isTrue();
+        context.close();
+        assertThat(supervisor.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testResolvingPrototypeByNameIsRejected() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        // expect
+        assertThatThrownBy(() -> context.getBean("counter"))
+                .isInstanceOf(BeanCreationException.class)
+                .hasMessageContaining(SupervisedServiceProxyFactoryBean.FACADE_NAME_PREFIX + "counter");
+        assertThat(context.getBean(SupervisedServiceProxyFactoryBean.FACADE_NAME_PREFIX + "counter"))
+                .isSameAs(context.getBean(Counter.class));
+        context.close();
+    }
+
+    @Test
+    void testSupervisedSingletonIsRejected() {
+        assertThatThrownBy(() -> new AnnotationConfigApplicationContext(SingletonConf.class))
+                .isInstanceOf(BeanDefinitionValidationException.class);
+    }
+
+    private SupervisedService createSupervisor() {
+        return new SupervisedService(() -> {
+            CounterService service = new CounterService();
+            instances.add(service);
+            return service;
+        });
+    }
+
+    /**
+     * @return supervisor which factory blocks until released when asked for replacement instance
+     */
+    private SupervisedService createBlockingSupervisor(CountDownLatch creating, CountDownLatch release) {
+        return new SupervisedService(() -> {
+            if (!instances.isEmpty()) {
+                creating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            CounterService service = new CounterService();
+            instances.add(service);
+            return service;
+        });
+    }
+
+    public interface Counter {
+        int increment();
+    }
+
+    public static class CounterService extends AbstractService implements Counter {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public int increment() {
+            return count.incrementAndGet();
+        }
+
+        void fail(Exception cause) {
+            notifyFailed(cause);
+        }
+
+        @Override
+        protected void doStart() {
+            notifyStarted();
+        }
+
+        @Override
+        protected void doStop() {
+            notifyStopped();
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @Scope("prototype")
+        @WithSmartLifecycle(supervised = true, restartBackoff = 1, maxRestarts = 3)
+        public CounterService counter() {
+            return new CounterService();
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class SingletonConf {
+        @Bean
+        @WithSmartLifecycle(supervised = true)
+        public CounterService counter() {
+            return new CounterService();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.alopukhov.gusp.lifecycle;
+
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static io.github.alopukhov.gusp.lifecycle.WithSmartLifecycleIndex.IGNORE_INDEX_PROPERTY;
+import static io.github.alopukhov.gusp.lifecycle.WithSmartLifecycleIndex.INDEX_LOCATION;
+import static io.github.alopukhov.gusp.lifecycle.WithSmartLifecyclePostprocessor.DEFAULT_BEAN_NAME_SUFFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WithSmartLifecycleIndexTest {
+    @TempDir
+    Path indexRoot;
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(IGNORE_INDEX_PROPERTY);
+    }
+
+    @Test
+    void testOnlyIndexedDefinitionsAreProcessed() throws IOException {
+        // given
+        ClassLoader classLoader = classLoaderWithIndex(Conf.class, Conf.class.getName() + "#indexed");
+        // when
+        AnnotationConfigApplicationContext context = createContext(classLoader);
+        // then
+        assertThat(context.containsBean("indexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+        assertThat(context.containsBean("notIndexed" + DEFAULT_BEAN_NAME_SUFFIX)).isFalse();
+    }
+
+    @Test
+    void testDefinitionsOfRootsWithoutIndexAreProcessed() throws IOException {
+        // given
+        ClassLoader classLoader = classLoaderWithIndex(null, "acme.Other");
+        // when
+        AnnotationConfigApplicationContext context = createContext(classLoader);
+        // then
+        assertThat(context.containsBean("indexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+        assertThat(context.containsBean("notIndexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+    }
+
+    @Test
+    void testIndexIsIgnoredIfFlagIsSet() throws IOException {
+        // given
+        ClassLoader classLoader = classLoaderWithIndex(Conf.class, Conf.class.getName() + "#indexed");
+        System.setProperty(IGNORE_INDEX_PROPERTY, "true");
+        // when
+        AnnotationConfigApplicationContext context = createContext(classLoader);
+        // then
+        assertThat(context.containsBean("indexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+        assertThat(context.containsBean("notIndexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+    }
+
+    @Test
+    void testFullScanWithoutIndex() {
+        // when
+        AnnotationConfigApplicationContext context = createContext(getClass().getClassLoader());
+        // then
+        assertThat(context.containsBean("indexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+        assertThat(context.containsBean("notIndexed" + DEFAULT_BEAN_NAME_SUFFIX)).isTrue();
+    }
+
+    /**
+     * @return class loader with index root which resources take precedence, class file of indexed class is copied to it
+     */
+    private ClassLoader classLoaderWithIndex(Class<?> indexedClass, String... entries) throws IOException {
+        Path index = indexRoot.resolve(INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.write(index, Arrays.asList(entries), StandardCharsets.UTF_8);
+        if (indexedClass != null) {
+            String classFile = indexedClass.getName().replace('.', '/') + ".class";
+            Path copy = indexRoot.resolve(classFile);
+            Files.createDirectories(copy.getParent());
+            try (InputStream in = indexedClass.getClassLoader().getResourceAsStream(classFile)) {
+                Files.copy(in, copy);
+            }
+        }
+        return new URLClassLoader(new URL[]{indexRoot.toUri().toURL()}, getClass().getClassLoader()) {
+            @Override
+            public URL getResource(String name) {
+                URL resource = findResource(name);
+                return resource != null ? resource : super.getResource(name);
+            }
+        };
+    }
+
+    private static AnnotationConfigApplicationContext createContext(ClassLoader classLoader) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setClassLoader(classLoader);
+        context.register(Conf.class);
+        context.refresh();
+        return context;
+    }
+
+    @Configuration
+    public static class Conf {
+        @Bean
+        public static WithSmartLifecyclePostprocessor withSmartLifeCyclePostprocessor() {
+            return new WithSmartLifecyclePostprocessor();
+        }
+
+        @Bean
+        @WithSmartLifecycle(autoStartup = false)
+        public DummyService indexed() {
+            return new DummyService();
+        }
+
+        @Bean
+        @WithSmartLifecycle(autoStartup = false)
+        public DummyService notIndexed() {
+            return new DummyService();
+        }
+    }
+}
@@ -23,7 +23,9 @@ class WithSmartLifecyclePostprocessorAttributesTest {
                 .hasAutoStartupEnabled()
                 .hasPhase(0)
                 .hasAsyncStartDisabled()
-                .hasStopOnDestroyDisabled();
+                .hasStopOnDestroyDisabled()
+                .hasStartTimeout(0)
+                .hasStopTimeout(0);
     }
 
     @Test
@@ -55,6 +57,11 @@ class WithSmartLifecyclePostprocessorAttributesTest {
         assertDefaultNamedSupportBean("addStopOnDestroyCallbackFalse").hasStopOnDestroyDisabled();
     }
 
+    @Test
+    void testTimeouts() {
+        assertDefaultNamedSupportBean("timeouts").hasStartTimeout(100).hasStopTimeout(200);
+    }
+
     private ServiceSmartLifecycleAdpaterAssert assertDefaultNamedSupportBean(String serviceName) {
         return assertSupportBean(serviceName + DEFAULT_BEAN_NAME_SUFFIX)
                 .hasService(context.getBean(serviceName, Service.class));
@@ -126,5 +133,11 @@ class WithSmartLifecyclePostprocessorAttributesTest {
         public static Service addStopOnDestroyCallbackFalse() {
             return new DummyService();
         }
+
+        @Bean
+        @WithSmartLifecycle(startTimeout = 100, stopTimeout = 200)
+        public static Service timeouts() {
+            return new DummyService();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package io.github.alopukhov.gusp.scheduling;
+
+import com.google.common.util.concurrent.Service.State;
+import io.github.alopukhov.gusp.annotations.EnableGusp;
+import io.github.alopukhov.gusp.annotations.WithSmartLifecycle;
+import io.github.alopukhov.gusp.lifecycle.DummyService;
+import io.github.alopukhov.gusp.lifecycle.ServiceSmartLifecycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("UnstableApiUsage")
+class SharedSchedulerTest {
+    private final SharedScheduler scheduler = new SharedScheduler();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void testTasksAreRejectedWhenNotRunning() {
+        // given
+        ScheduledExecutorService executor = scheduler.newExecutor("test");
+        // expect
+        assertThatThrownBy(() -> executor.execute(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> executor.schedule(() -> {
+        }, 1, TimeUnit.MILLISECONDS)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void testDelayedTask() throws Exception {
+        // given
+        scheduler.setTickDuration(1);
+        scheduler.start();
+        ScheduledExecutorService executor = scheduler.newExecutor("test");
+        long startedAt = System.nanoTime();
+        // when
+        ScheduledFuture<String> future = executor.schedule(() -> "done", 20, TimeUnit.MILLISECONDS);
+        // then
+        assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(System.nanoTime() - startedAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void testPeriodicTaskIsRepeatedUntilCancelled() throws Exception {
+        // given
+        scheduler.setTickDuration(1);
+        scheduler.start();
+        ScheduledExecutorService executor = scheduler.newExecutor("test");
+        CountDownLatch executions = new CountDownLatch(3);
+        // when
+        ScheduledFuture<?> future = executor.scheduleWithFixedDelay(executions::countDown, 0, 5, TimeUnit.MILLISECONDS);
+        // then
+        assertThat(executions.await(5, TimeUnit.SECONDS)).isTrue();
+        // when
+        future.cancel(false);
+        executor.shutdown();
+        // then
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testSlowServiceDoesNotBlockOthers() throws Exception {
+        // given
+        scheduler.setPoolSize(2);
+        scheduler.start();
+        ScheduledExecutorService slow = scheduler.newExecutor("slow");
+        ScheduledExecutorService fast = scheduler.newExecutor("fast");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger concurrentSlowTasks = new AtomicInteger();
+        AtomicInteger maxConcurrentSlowTasks = new AtomicInteger();
+        Runnable slowTask = () -> {
+            maxConcurrentSlowTasks.accumulateAndGet(concurrentSlowTasks.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrentSlowTasks.decrementAndGet();
+        };
+        // when
+        Future<?> firstSlow = slow.submit(slowTask);
+        Future<?> secondSlow = slow.submit(slowTask);
+        List<Future<Integer>> fastResults = fast.invokeAll(Arrays.asList(() -> 1, () -> 2, () -> 3),
+                5, TimeUnit.SECONDS);
+        // then
+        assertThat(fastResults).allMatch(result -> result.isDone() && !result.isCancelled());
+        // when
+        release.countDown();
+        firstSlow.get(5, TimeUnit.SECONDS);
+        secondSlow.get(5, TimeUnit.SECONDS);
+        // then
+        assertThat(maxConcurrentSlowTasks.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testStopCancelsScheduledTasks() {
+        // given
+        scheduler.start();
+        ScheduledFuture<?> future = scheduler.newExecutor("test").schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+        // when
+        scheduler.stop();
+        // then
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(scheduler.isRunning()).isFalse();
+    }
+
+    @Test
+    void testScheduledServiceRunsOnSharedScheduler() throws Exception {
+        // given
+        scheduler.setTickDuration(1);
+        scheduler.setPoolSize(1);
+        scheduler.start();
+        Thread worker = scheduler.newExecutor("test").submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        PollingService service = new PollingService();
+        service.setSharedScheduler(scheduler);
+        // when
+        service.startAsync().awaitRunning();
+        // then
+        assertThat(service.threads.poll(5, TimeUnit.SECONDS)).isSameAs(worker);
+        // when
+        service.stopAsync().awaitTerminated(5, TimeUnit.SECONDS);
+        // then
+        assertThat(service.state()).isEqualTo(State.TERMINATED);
+    }
+
+    @Test
+    void testSchedulerIsSharedAndStoppedAfterServices() {
+        // given
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Conf.class);
+        SharedScheduler sharedScheduler = context.getBean(SharedScheduler.class);
+        ServiceSmartLifecycle lifecycle = context.getBean(ServiceSmartLifecycle.class);
+        // expect
+        assertThat(lifecycle.getSharedScheduler()).isSameAs(sharedScheduler);
+        assertThat(((PollingService) lifecycle.getService()).getSharedScheduler()).isSameAs(sharedScheduler);
+        assertThat(sharedScheduler.isRunning()).isTrue();
+        assertThat(lifecycle.getService().state()).isEqualTo(State.RUNNING);
+        // when
+        context.close();
+        // then
+        assertThat(lifecycle.getService().state()).isEqualTo(State.TERMINATED);
+        assertThat(sharedScheduler.isRunning()).isFalse();
+    }
+
+    @Test
+    void testServiceMustSupportSharedScheduler() {
+        assertThatThrownBy(() -> new AnnotationConfigApplicationContext(UnsupportedConf.class))
+                .isInstanceOf(BeanCreationException.class)
+                .hasStackTraceContaining(SharedSchedulerAware.class.getSimpleName());
+    }
+
+    private static class PollingService extends AbstractSharedScheduledService {
+        private final BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+
+        @Override
+        protected void runOneIteration() {
+            threads.offer(Thread.currentThread());
+        }
+
+        @Override
+        protected Scheduler scheduler() {
+            return Scheduler.newFixedDelaySchedule(0, 10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class Conf {
+        @Bean
+        @WithSmartLifecycle(sharedScheduler = true)
+        public PollingService pollingService() {
+            return new PollingService();
+        }
+    }
+
+    @Configuration
+    @EnableGusp
+    public static class UnsupportedConf {
+        @Bean
+        @WithSmartLifecycle(sharedScheduler = true)
+        public DummyService dummyService() {
+            return new DummyService();
+        }
+    }
+}